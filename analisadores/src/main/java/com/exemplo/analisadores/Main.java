@@ -0,0 +1,36 @@
+package com.exemplo.analisadores;
+
+import com.exemplo.comum.Env;
+import com.exemplo.comum.ServiceRunner;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.List;
+
+/**
+ * Executa os dois analisadores na mesma JVM: uma conexão com o broker, um endpoint
+ * de métricas (séries separadas pelo rótulo {@code service}) e um único runtime
+ * nativo do ND4J, em vez de dois processos que duplicam memória off-heap e pools
+ * de threads. Os núcleos são divididos por {@code SENTIMENTO_CORES} e
+ * {@code TIMES_CORES} (padrão: metade para cada); as demais variáveis aceitam os
+ * prefixos {@code SENTIMENTO_} e {@code TIMES_} para valer só para um dos serviços.
+ */
+public class Main {
+
+    public static void main(String[] args) {
+        Env env = Env.plain();
+        int cores = Runtime.getRuntime().availableProcessors();
+        int sentimentoCores = Math.max(1, env.getInt("SENTIMENTO_CORES", cores / 2));
+        int timesCores = Math.max(1, env.getInt("TIMES_CORES", cores - sentimentoCores));
+
+        // As threads por operação do ND4J valem para o processo: limita à fatia do menor serviço.
+        if (env.getInt("OMP_NUM_THREADS", 0) <= 0) {
+            Nd4j.getEnvironment().setMaxMasterThreads(Math.min(sentimentoCores, timesCores));
+        }
+        System.out.printf("Analisadores na mesma JVM: sentimento %d núcleos, times %d núcleos\n",
+                sentimentoCores, timesCores);
+
+        ServiceRunner.run("analisadores", List.of(
+                new com.exemplo.sentimento.Main(Env.prefixed("SENTIMENTO"), sentimentoCores),
+                new com.exemplo.times.Main(Env.prefixed("TIMES"), timesCores)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.exemplo.sentimento;
+
+import com.exemplo.comum.BenchmarkSupport;
+import com.exemplo.comum.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Decodificação (ImageIO) e redimensionamento para 48x48 em tons de cinza de uma imagem. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    private Main.SentimentAnalyzer analyzer;
+    private List<byte[]> images;
+    private int next;
+
+    @Setup
+    public void setup() {
+        analyzer = new Main.SentimentAnalyzer(new ResultCache<>(0, 0, 0, r -> 0));
+        images = BenchmarkSupport.images(64, 96);
+    }
+
+    @Benchmark
+    public BufferedImage decodeAndResize() {
+        return analyzer.decode(images.get(next++ % images.size()));
+    }
+}
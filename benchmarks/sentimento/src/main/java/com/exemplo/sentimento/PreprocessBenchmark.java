@@ -0,0 +1,55 @@
+package com.exemplo.sentimento;
+
+import com.exemplo.comum.BenchmarkSupport;
+import com.exemplo.comum.ImagePreprocessor;
+import com.exemplo.comum.ResultCache;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão imagem→tensor {@code [N,48,48,1]} (antigo {@code imageToINDArray}) a partir
+ * de imagens já decodificadas e redimensionadas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreprocessBenchmark {
+    @Param({"1", "4", "16", "64"})
+    int batchSize;
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(48, 48, 1);
+    private List<BufferedImage> decoded;
+
+    @Setup
+    public void setup() {
+        List<byte[]> images = BenchmarkSupport.images(64, 96);
+        Main.SentimentAnalyzer analyzer = new Main.SentimentAnalyzer(new ResultCache<>(0, 0, 0, r -> 0));
+        decoded = new ArrayList<>(batchSize);
+        for (byte[] image : BenchmarkSupport.window(images, 0, batchSize)) decoded.add(analyzer.decode(image));
+    }
+
+    @Benchmark
+    public INDArray toINDArray() {
+        float[] data = preprocessor.buffer(batchSize);
+        for (int i = 0; i < batchSize; i++) preprocessor.write(decoded.get(i), data, i);
+        return preprocessor.toINDArray(data, batchSize);
+    }
+}
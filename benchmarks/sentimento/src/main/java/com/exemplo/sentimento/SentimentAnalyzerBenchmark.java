@@ -0,0 +1,55 @@
+package com.exemplo.sentimento;
+
+import com.exemplo.comum.BenchmarkSupport;
+import com.exemplo.comum.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análise completa (decodificação, pré-processamento e inferência) de um lote, com o
+ * cache desativado. {@code batchSize=1} corresponde a {@code SentimentAnalyzer.analyze}.
+ * Precisa do {@code model.h5} no diretório atual.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentimentAnalyzerBenchmark {
+    @Param({"1", "4", "16", "64"})
+    int batchSize;
+
+    @Param({"1", "max"})
+    String nd4jThreads;
+
+    private Main.SentimentAnalyzer analyzer;
+    private List<byte[]> images;
+    private int offset;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.configureNd4j(nd4jThreads);
+        analyzer = new Main.SentimentAnalyzer(new ResultCache<>(0, 0, 0, r -> 0));
+        images = BenchmarkSupport.images(256, 96);
+    }
+
+    @Benchmark
+    public List<Main.SentimentAnalyzer.Result> analyzeBatch() {
+        List<byte[]> batch = BenchmarkSupport.window(images, offset, batchSize);
+        offset += batchSize;
+        return analyzer.analyzeBatch(batch);
+    }
+}
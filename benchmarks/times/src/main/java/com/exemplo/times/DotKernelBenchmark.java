@@ -0,0 +1,59 @@
+package com.exemplo.times;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Similaridade de cosseno entre vetores normalizados, isolada: o kernel escalar contra
+ * o selecionado em tempo de execução (Vector API, se o módulo estiver disponível), para
+ * um par de vetores e para um bloco de linhas da galeria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DotKernelBenchmark {
+    private static final int ROWS = 256;
+
+    @Param({"128", "1280"})
+    int dim;
+
+    @Param({"scalar", "preferred"})
+    String kernel;
+
+    private Main.DotKernel dotKernel;
+    private float[] query;
+    private float[] rows;
+    private final float[] scores = new float[ROWS];
+
+    @Setup
+    public void setup() {
+        dotKernel = kernel.equals("scalar") ? new Main.ScalarDotKernel() : Main.DotKernel.INSTANCE;
+        query = Main.EmbeddingIndex.normalize(SyntheticGallery.queries(1, dim, 11)[0]);
+        rows = SyntheticGallery.of(ROWS, dim, 7).getVectors();
+    }
+
+    @Benchmark
+    public float dot() {
+        return dotKernel.dot(query, 0, rows, 0, dim);
+    }
+
+    @Benchmark
+    public float[] dotRows() {
+        dotKernel.dotRows(query, rows, 0, ROWS, dim, scores);
+        return scores;
+    }
+}
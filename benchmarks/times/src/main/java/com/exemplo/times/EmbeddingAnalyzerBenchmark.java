@@ -0,0 +1,86 @@
+package com.exemplo.times;
+
+import com.exemplo.comum.BenchmarkSupport;
+import com.exemplo.comum.Metrics;
+import com.exemplo.comum.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análise completa de um lote (decodificação paralela, pré-processamento, embedding e
+ * busca na galeria) com o cache desativado e uma galeria sintética de
+ * {@code gallerySize} vetores. {@code batchSize=1} corresponde a
+ * {@code EmbeddingAnalyzer.analyze}. O modelo vem de {@code -Dbench.model}
+ * (padrão {@code model.h5} no diretório atual).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class EmbeddingAnalyzerBenchmark {
+    @Param({"1", "4", "16", "64"})
+    int batchSize;
+
+    @Param({"1", "max"})
+    String nd4jThreads;
+
+    @Param({"1000"})
+    int gallerySize;
+
+    @Param({"1280"})
+    int dim;
+
+    @Param({"flat"})
+    String index;
+
+    private Main.EmbeddingAnalyzer analyzer;
+    private List<byte[]> images;
+    private Path galleryFile;
+    private int offset;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkSupport.configureNd4j(nd4jThreads);
+        galleryFile = Files.createTempFile("bench-gallery", ".bin");
+        SyntheticGallery.of(gallerySize, dim, 7).write(galleryFile);
+        analyzer = new Main.EmbeddingAnalyzer(
+                galleryFile.toString(), "", "",
+                System.getProperty("bench.model", "model.h5"),
+                Runtime.getRuntime().availableProcessors(),
+                index,
+                new ResultCache<>(0, 0, 0, label -> 0),
+                Metrics.global());
+        images = BenchmarkSupport.images(256, 256);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        analyzer.shutdown();
+        Files.deleteIfExists(galleryFile);
+    }
+
+    @Benchmark
+    public List<Main.Match> analyzeBatch() {
+        List<byte[]> batch = BenchmarkSupport.window(images, offset, batchSize);
+        offset += batchSize;
+        return analyzer.analyzeBatch(batch);
+    }
+}
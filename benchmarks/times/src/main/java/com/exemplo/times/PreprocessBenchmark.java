@@ -0,0 +1,58 @@
+package com.exemplo.times;
+
+import com.exemplo.comum.BenchmarkSupport;
+import com.exemplo.comum.ImagePreprocessor;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão imagem→tensor {@code [N,224,224,3]} (antigo {@code imageToINDArray}) a partir
+ * de imagens já redimensionadas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PreprocessBenchmark {
+    @Param({"1", "4", "16", "64"})
+    int batchSize;
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(224, 224, 3);
+    private List<BufferedImage> resized;
+
+    @Setup
+    public void setup() throws IOException {
+        resized = new ArrayList<>(batchSize);
+        for (byte[] image : BenchmarkSupport.window(BenchmarkSupport.images(64, 256), 0, batchSize)) {
+            BufferedImage original = ImageIO.read(new ByteArrayInputStream(image));
+            resized.add(Main.EmbeddingAnalyzer.resizeImage(original, 224, 224));
+        }
+    }
+
+    @Benchmark
+    public INDArray toINDArray() {
+        float[] data = preprocessor.buffer(batchSize);
+        for (int i = 0; i < batchSize; i++) preprocessor.write(resized.get(i), data, i);
+        return preprocessor.toINDArray(data, batchSize);
+    }
+}
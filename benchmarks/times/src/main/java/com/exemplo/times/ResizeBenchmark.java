@@ -0,0 +1,51 @@
+package com.exemplo.times;
+
+import com.exemplo.comum.BenchmarkSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Decodificação (ImageIO) e {@code resizeImage} para 224x224, separadamente. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ResizeBenchmark {
+    private List<byte[]> images;
+    private List<BufferedImage> originals;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        images = BenchmarkSupport.images(64, 256);
+        originals = new ArrayList<>(images.size());
+        for (byte[] image : images) originals.add(ImageIO.read(new ByteArrayInputStream(image)));
+    }
+
+    @Benchmark
+    public BufferedImage decode() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(images.get(next++ % images.size())));
+    }
+
+    @Benchmark
+    public BufferedImage resizeImage() {
+        return Main.EmbeddingAnalyzer.resizeImage(originals.get(next++ % originals.size()), 224, 224);
+    }
+}
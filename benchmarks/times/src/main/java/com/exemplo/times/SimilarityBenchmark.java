@@ -0,0 +1,63 @@
+package com.exemplo.times;
+
+import com.exemplo.comum.BenchmarkSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca por similaridade de cosseno (antigo {@code cosineSimilarity} em laço) sobre uma
+ * galeria sintética: top-1 para um lote de consultas, como no consumidor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SimilarityBenchmark {
+    @Param({"1", "16", "64"})
+    int batchSize;
+
+    @Param({"1000", "20000"})
+    int gallerySize;
+
+    @Param({"1280"})
+    int dim;
+
+    @Param({"flat", "hnsw"})
+    String index;
+
+    @Param({"1", "max"})
+    String nd4jThreads;
+
+    private Main.EmbeddingIndex embeddingIndex;
+    private float[][] queries;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.configureNd4j(nd4jThreads);
+        Main.GalleryFile contents = SyntheticGallery.of(gallerySize, dim, 7);
+        embeddingIndex = Main.EmbeddingIndex.create(index);
+        embeddingIndex.addAll(contents.getLabels(), contents.getVectors(), dim, true);
+        queries = SyntheticGallery.queries(batchSize, dim, 11);
+        for (int i = 0; i < queries.length; i++) queries[i] = Main.EmbeddingIndex.normalize(queries[i]);
+    }
+
+    @Benchmark
+    public List<List<Main.Match>> searchBatch() {
+        return embeddingIndex.searchBatch(queries, 1);
+    }
+
+}
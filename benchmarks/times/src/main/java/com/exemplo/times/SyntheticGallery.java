@@ -0,0 +1,31 @@
+package com.exemplo.times;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Galerias e consultas sintéticas dos benchmarks de similaridade: vetores gaussianos com semente fixa. */
+final class SyntheticGallery {
+    private SyntheticGallery() {}
+
+    /** Galeria normalizada com {@code count} vetores de dimensão {@code dim}. */
+    static Main.GalleryFile of(int count, int dim, long seed) {
+        Random random = new Random(seed);
+        List<String> labels = new ArrayList<>(count);
+        float[] vectors = new float[count * dim];
+        for (int i = 0; i < count; i++) {
+            labels.add("time_" + i);
+            for (int j = 0; j < dim; j++) vectors[i * dim + j] = (float) random.nextGaussian();
+        }
+        return new Main.GalleryFile(labels, vectors, dim, false).normalize();
+    }
+
+    static float[][] queries(int count, int dim, long seed) {
+        Random random = new Random(seed);
+        float[][] queries = new float[count][dim];
+        for (float[] query : queries) {
+            for (int j = 0; j < dim; j++) query[j] = (float) random.nextGaussian();
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,107 @@
+package com.exemplo.comum;
+
+import com.rabbitmq.client.Channel;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Amostra periodicamente a fila e a ocupação dos workers, pede a decisão ao
+ * {@link ScalingPolicy} e aplica mudanças de workers/prefetch no {@link Target}.
+ * Cada mudança é registrada no console com o motivo; profundidade, vazão e o
+ * último alvo ficam em gauges. A fila é lida por um {@link QueueProbe}, que nos
+ * testes pode ser um broker simulado.
+ */
+public final class Autoscaler {
+    /** Profundidade da fila (mensagens prontas para entrega). */
+    public interface QueueProbe {
+        long depth() throws IOException;
+
+        /** {@code queueDeclarePassive} em um canal próprio, sem alterar a fila. */
+        static QueueProbe rabbit(Channel channel, String queue) {
+            return () -> channel.queueDeclarePassive(queue).getMessageCount();
+        }
+    }
+
+    /** O que é escalado: pool de workers e prefetch por worker de um {@link ConsumerRuntime}. */
+    public interface Target {
+        int workers();
+        int prefetch();
+        long inFlight();
+        /** Entregas concluídas (ack, nack ou descarte) desde o início. */
+        long settled();
+        void resize(int workers, int prefetch);
+    }
+
+    private final String service;
+    private final ScalingPolicy policy;
+    private final QueueProbe probe;
+    private final Target target;
+    private final Metrics metrics;
+    private final AtomicLong queueDepth = new AtomicLong();
+    private volatile double settleRate;
+    private long lastSettled;
+    private long lastSampleMs;
+    private ScheduledExecutorService scheduler;
+
+    public Autoscaler(String service, ScalingPolicy policy, QueueProbe probe, Target target, Metrics metrics) {
+        this.service = service;
+        this.policy = policy;
+        this.probe = probe;
+        this.target = target;
+        this.metrics = metrics;
+    }
+
+    public void start(long intervalMs) {
+        metrics.gauge("queue_depth", "Mensagens prontas na fila, na última amostra do autoscaler", queueDepth::get);
+        metrics.gauge("settle_rate", "Entregas concluídas por segundo, na última amostra do autoscaler", () -> settleRate);
+        metrics.gauge("prefetch", "Prefetch atual por worker", target::prefetch);
+        metrics.describe("autoscale_up", "Decisões do autoscaler que aumentaram workers ou prefetch");
+        metrics.describe("autoscale_down", "Decisões do autoscaler que reduziram workers ou prefetch");
+        lastSettled = target.settled();
+        lastSampleMs = System.currentTimeMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "autoscaler-" + service);
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                tick(System.currentTimeMillis());
+            } catch (Exception e) {
+                System.err.printf("[%s] Erro no autoscaler: %s\n", service, e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Uma amostra e, se for o caso, uma mudança. Exposto para testes com relógio controlado. */
+    public ScalingPolicy.Decision tick(long nowMs) throws IOException {
+        long depth = probe.depth();
+        long settled = target.settled();
+        double elapsed = Math.max(1, nowMs - lastSampleMs) / 1000.0;
+        settleRate = (settled - lastSettled) / elapsed;
+        lastSettled = settled;
+        lastSampleMs = nowMs;
+        queueDepth.set(depth);
+
+        int workers = target.workers();
+        int prefetch = target.prefetch();
+        ScalingPolicy.Decision decision = policy.decide(new ScalingPolicy.Sample(
+                nowMs, depth, settleRate, target.inFlight(), workers, prefetch));
+        if (decision.workers() == workers && decision.prefetch() == prefetch) return decision;
+
+        boolean up = decision.workers() > workers || decision.prefetch() > prefetch;
+        metrics.increment(up ? "autoscale_up" : "autoscale_down");
+        System.out.printf("[%s] Autoscaler: workers %d -> %d, prefetch %d -> %d (%s)\n",
+                service, workers, decision.workers(), prefetch, decision.prefetch(), decision.reason());
+        target.resize(decision.workers(), decision.prefetch());
+        return decision;
+    }
+
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,81 @@
+package com.exemplo.comum;
+
+import org.nd4j.linalg.factory.Nd4j;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Utilitários dos benchmarks dos consumidores (modos {@code --benchmark-*} e módulos JMH):
+ * imagens de entrada e configuração de threads do ND4J. Nada é baixado durante a execução.
+ */
+public final class BenchmarkSupport {
+    private BenchmarkSupport() {}
+
+    /**
+     * Imagens do diretório da propriedade {@code bench.images} (jpg/png, recursivo) ou,
+     * se ela não for informada, {@code syntheticCount} imagens sintéticas de {@code size}x{@code size}.
+     */
+    public static List<byte[]> images(int syntheticCount, int size) {
+        String dir = System.getProperty("bench.images");
+        if (dir == null || dir.isBlank()) return syntheticImages(syntheticCount, size);
+
+        try (Stream<Path> files = Files.walk(Paths.get(dir))) {
+            List<Path> paths = files
+                    .filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().toLowerCase().matches(".*\\.(jpe?g|png)$"))
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (paths.isEmpty()) throw new IllegalStateException("Nenhuma imagem em " + dir);
+            List<byte[]> images = new ArrayList<>(paths.size());
+            for (Path path : paths) images.add(Files.readAllBytes(path));
+            return images;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** PNGs de ruído {@code size}x{@code size}, distintos entre si e iguais a cada execução. */
+    public static List<byte[]> syntheticImages(int count, int size) {
+        Random random = new Random(3);
+        List<byte[]> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_3BYTE_BGR);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) img.setRGB(x, y, random.nextInt());
+            }
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(img, "png", out);
+                images.add(out.toByteArray());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return images;
+    }
+
+    /** Próximas {@code count} imagens a partir de {@code offset}, circulando pela lista. */
+    public static List<byte[]> window(List<byte[]> images, int offset, int count) {
+        List<byte[]> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) batch.add(images.get((offset + i) % images.size()));
+        return batch;
+    }
+
+    /** {@code "1"} limita o ND4J a uma thread por operação; {@code "max"} usa todos os núcleos. */
+    public static void configureNd4j(String threads) {
+        int count = threads.equals("max") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+        Nd4j.getEnvironment().setMaxMasterThreads(Math.max(1, count));
+    }
+}
@@ -0,0 +1,171 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Saída do processamento em lote: resultados em JSON Lines (o mesmo formato do
+ * {@code consumidor-resultados}), gravados na ordem da origem mesmo que os workers
+ * terminem os trechos fora de ordem. A cada {@code checkpointIntervalMs}, o arquivo
+ * recebe um fsync e o checkpoint ({@code <saida>.checkpoint}) registra a posição na
+ * origem e o tamanho da saída até ali.
+ * <p>
+ * Ao retomar, a saída é truncada no tamanho do checkpoint e a origem pula os registros
+ * já gravados: resultados escritos depois do último checkpoint são refeitos, sem
+ * linhas duplicadas nem pela metade.
+ */
+final class BulkOutput implements Closeable {
+    private final Path checkpointFile;
+    private final String source;
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private final long checkpointIntervalMs;
+    private final TreeMap<Long, Pending> pending = new TreeMap<>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+    private long nextSequence;
+    private long position;
+    private long bytes;
+    private String lastKey;
+    private long written;
+    private long lastCheckpointMs;
+
+    private BulkOutput(Path checkpointFile, String source, ObjectMapper objectMapper, FileChannel channel,
+                       long checkpointIntervalMs, Checkpoint resumed) {
+        this.checkpointFile = checkpointFile;
+        this.source = source;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+        this.checkpointIntervalMs = checkpointIntervalMs;
+        this.position = resumed.position;
+        this.bytes = resumed.outputBytes;
+        this.lastKey = resumed.lastKey;
+        this.written = resumed.results;
+        this.lastCheckpointMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Abre {@code output} para gravação. Com checkpoint, confere a origem, trunca a
+     * saída e avança {@code source} até a posição salva; sem checkpoint, exige que a
+     * saída ainda não exista (ou esteja vazia), para não misturar execuções.
+     */
+    static BulkOutput open(Path output, BulkSource source, ObjectMapper objectMapper, long checkpointIntervalMs)
+            throws IOException {
+        Path checkpointFile = output.resolveSibling(output.getFileName() + ".checkpoint");
+        Checkpoint checkpoint = new Checkpoint();
+        if (Files.exists(checkpointFile)) {
+            checkpoint = objectMapper.readValue(checkpointFile.toFile(), Checkpoint.class);
+            if (!source.describe().equals(checkpoint.source)) {
+                throw new IOException("O checkpoint " + checkpointFile + " é de outra origem: " + checkpoint.source);
+            }
+            long size = Files.exists(output) ? Files.size(output) : 0;
+            if (size < checkpoint.outputBytes) {
+                throw new IOException(String.format("Saída %s menor (%d bytes) que a registrada no checkpoint (%d bytes)",
+                        output, size, checkpoint.outputBytes));
+            }
+            String key = source.skip(checkpoint.position);
+            if (!Objects.equals(key, checkpoint.lastKey)) {
+                throw new IOException(String.format("A origem mudou desde o checkpoint: posição %d é %s, esperado %s",
+                        checkpoint.position, key, checkpoint.lastKey));
+            }
+        } else if (Files.exists(output) && Files.size(output) > 0) {
+            throw new IOException("Saída " + output + " já existe sem checkpoint; remova-a ou use outro arquivo");
+        }
+        checkpoint.source = source.describe();
+
+        if (output.toAbsolutePath().getParent() != null) Files.createDirectories(output.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(checkpoint.outputBytes);
+        channel.position(checkpoint.outputBytes);
+        return new BulkOutput(checkpointFile, checkpoint.source, objectMapper, channel, checkpointIntervalMs, checkpoint);
+    }
+
+    /** Posição na origem já gravada (a do checkpoint ao abrir). */
+    synchronized long position() { return position; }
+
+    /** Resultados gravados, inclusive os de execuções anteriores. */
+    synchronized long written() { return written; }
+
+    /**
+     * Recebe os resultados de um trecho e grava todos os trechos que já estão na vez.
+     * Devolve quantos trechos foram gravados (0 se este ainda espera um anterior).
+     */
+    synchronized int complete(BulkSource.Chunk chunk, List<ResultMessage> results) throws IOException {
+        pending.put(chunk.sequence(), new Pending(chunk, results));
+        int count = 0;
+        Pending next;
+        while ((next = pending.remove(nextSequence)) != null) {
+            for (ResultMessage result : next.results) {
+                objectMapper.writeValue(buffer, result);
+                buffer.write('\n');
+            }
+            nextSequence++;
+            position = next.chunk.end();
+            lastKey = next.chunk.lastKey();
+            written += next.results.size();
+            count++;
+        }
+        if (buffer.size() > 0) {
+            ByteBuffer data = ByteBuffer.wrap(buffer.toByteArray());
+            while (data.hasRemaining()) bytes += channel.write(data);
+            buffer.reset();
+        }
+        if (count > 0 && System.currentTimeMillis() - lastCheckpointMs >= checkpointIntervalMs) checkpoint();
+        return count;
+    }
+
+    /** fsync da saída e, depois, o checkpoint, gravado em arquivo temporário e renomeado. */
+    synchronized void checkpoint() throws IOException {
+        channel.force(false);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.source = source;
+        checkpoint.position = position;
+        checkpoint.lastKey = lastKey;
+        checkpoint.outputBytes = bytes;
+        checkpoint.results = written;
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(tmp, objectMapper.writeValueAsBytes(checkpoint));
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastCheckpointMs = System.currentTimeMillis();
+    }
+
+    /** Checkpoint final com o que foi gravado em ordem; trechos à espera de um anterior são descartados. */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            checkpoint();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static final class Pending {
+        final BulkSource.Chunk chunk;
+        final List<ResultMessage> results;
+
+        Pending(BulkSource.Chunk chunk, List<ResultMessage> results) {
+            this.chunk = chunk;
+            this.results = results;
+        }
+    }
+
+    static final class Checkpoint {
+        @JsonProperty("origem") String source;
+        @JsonProperty("posicao") long position;
+        @JsonProperty("ultimo") String lastKey;
+        @JsonProperty("bytesSaida") long outputBytes;
+        @JsonProperty("resultados") long results;
+    }
+}
@@ -0,0 +1,242 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Processamento em lote sem RabbitMQ: lê as imagens de um {@link BulkSource} e as
+ * passa pelo mesmo pipeline dos consumidores (decodificação no pool do analisador,
+ * inferência em uma thread por worker, {@code PIPELINE_DEPTH} lotes em preparação),
+ * com {@code WORKERS} workers e réplicas do modelo como no {@link ConsumerRuntime}.
+ * Os resultados são gravados à medida que saem, em ordem, por um {@link BulkOutput}
+ * com checkpoint a cada {@code CHECKPOINT_INTERVAL_MS}; rodar de novo com a mesma
+ * saída retoma do último checkpoint.
+ * <p>
+ * Os trechos lidos e ainda não gravados ficam limitados a {@code workers x
+ * (PIPELINE_DEPTH + 2)}, para que um worker lento não faça os resultados dos demais
+ * se acumularem em memória. No SIGTERM, para de ler, conclui os lotes em andamento
+ * e grava o checkpoint.
+ */
+public final class BulkRunner<R> {
+    public interface BatchPreparer<R, P> {
+        CompletableFuture<P> prepare(R replica, List<ImageMessage> messages);
+    }
+
+    public interface BatchProcessor<R, P> {
+        List<ResultMessage> process(R replica, P prepared);
+    }
+
+    private static final long POLL_MS = 100;
+
+    private final String service;
+    private final String type;
+    private final int batchSize;
+    private final int workers;
+    private final int pipelineDepth;
+    private final long checkpointIntervalMs;
+    private final int reportIntervalSeconds;
+    private final long drainTimeoutMs;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong images = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean stopping;
+
+    /**
+     * @param type    tipo das mensagens deste analisador ({@code face} ou {@code team}); no log, as demais são ignoradas
+     * @param workers workers do consumo ({@link ConsumerRuntime#configureWorkers}), cada um com sua réplica
+     */
+    public BulkRunner(String service, String type, Env env, int batchSize, int workers, ObjectMapper objectMapper) {
+        this.service = service;
+        this.type = type;
+        this.batchSize = batchSize;
+        this.workers = Math.max(1, workers);
+        this.pipelineDepth = env.getInt("PIPELINE_DEPTH", 2);
+        this.checkpointIntervalMs = env.getInt("CHECKPOINT_INTERVAL_MS", 2000);
+        this.reportIntervalSeconds = env.getInt("REPORT_INTERVAL_S", 10);
+        this.drainTimeoutMs = env.getInt("DRAIN_TIMEOUT_MS", 10000);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Processa {@code sourcePath} (diretório ou log) até o fim, gravando em {@code output}.
+     * {@code replicas} recebe o índice do worker e devolve seu analisador. Falha com
+     * {@link IOException} se um lote não puder ser concluído; o checkpoint fica no
+     * último trecho gravado em ordem.
+     */
+    public <P> void run(Path sourcePath, Path output, IntFunction<R> replicas, BatchPreparer<R, P> preparer,
+                        BatchProcessor<R, P> processor) throws IOException {
+        try (BulkSource source = BulkSource.open(sourcePath, type, objectMapper)) {
+            BulkOutput out = BulkOutput.open(output, source, objectMapper, checkpointIntervalMs);
+            long startPosition = out.position();
+            long startWritten = out.written();
+            System.out.printf("[%s] Processamento em lote: %s -> %s | %d workers, lotes de %d, %d em preparação%s\n",
+                    service, source.describe(), output, workers, batchSize, pipelineDepth,
+                    startPosition > 0 ? String.format(" | retomando na posição %d (%d resultados gravados)",
+                            startPosition, startWritten) : "");
+
+            Semaphore window = new Semaphore(workers * (pipelineDepth + 2));
+            CountDownLatch finished = new CountDownLatch(1);
+            Thread hook = new Thread(() -> {
+                stopping = true;
+                try {
+                    finished.await(drainTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ignored) {}
+            }, "shutdown");
+            Runtime.getRuntime().addShutdownHook(hook);
+            ScheduledExecutorService reporter = startReporting(source, out);
+
+            long start = System.nanoTime();
+            try {
+                List<Thread> threads = new ArrayList<>();
+                for (int i = 0; i < workers; i++) {
+                    R replica = replicas.apply(i);
+                    int index = i;
+                    Thread t = new Thread(() -> feed(index, replica, source, out, window, preparer, processor),
+                            "bulk-" + service + "-" + i);
+                    threads.add(t);
+                    t.start();
+                }
+                for (Thread t : threads) {
+                    try {
+                        t.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        fail(e);
+                    }
+                }
+            } finally {
+                reporter.shutdownNow();
+                try {
+                    out.close();
+                } finally {
+                    printSummary(start, out, output);
+                    finished.countDown();
+                    try {
+                        Runtime.getRuntime().removeShutdownHook(hook);
+                    } catch (IllegalStateException ignored) {
+                        // JVM já encerrando: o hook aguardou o checkpoint e o resumo acima.
+                    }
+                }
+            }
+
+            Throwable cause = failure.get();
+            if (cause != null) {
+                throw new IOException("Processamento em lote interrompido; rode de novo para retomar do checkpoint", cause);
+            }
+        }
+    }
+
+    private void printSummary(long start, BulkOutput out, Path output) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[%s] %s: %d imagens em %.1f s (%.1f imagens/s), %d com ERRO, %d registros ilegíveis,"
+                        + " %d de outro tipo | posição %d, %d resultados em %s\n",
+                service, failure.get() != null ? "Interrompido" : stopping ? "Parado" : "Concluído",
+                images.get(), seconds, images.get() / Math.max(seconds, 1e-9), errors.get(), rejected.get(),
+                skipped.get(), out.position(), out.written(), output);
+    }
+
+    /**
+     * Laço de um worker: lê um trecho, dispara a decodificação e o entrega à etapa de
+     * inferência, que grava os resultados. Com {@code PIPELINE_DEPTH} = 0, processa em sequência.
+     */
+    private <P> void feed(int index, R replica, BulkSource source, BulkOutput out, Semaphore window,
+                          BatchPreparer<R, P> preparer, BatchProcessor<R, P> processor) {
+        InferenceStage inference = pipelineDepth > 0
+                ? new InferenceStage("bulk-inference-" + service + "-" + index, pipelineDepth) : null;
+        if (inference != null) inference.start();
+        try {
+            while (!stopping && failure.get() == null) {
+                if (!window.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS)) continue;
+                BulkSource.Chunk chunk = source.next(batchSize);
+                if (chunk == null) {
+                    window.release();
+                    return;
+                }
+                List<ImageMessage> messages = chunk.load();
+                rejected.addAndGet(chunk.rejected());
+                skipped.addAndGet(chunk.skipped());
+
+                AtomicBoolean written = new AtomicBoolean();
+                CompletableFuture<Runnable> work = preparer.prepare(replica, messages)
+                        .thenApply(prepared -> () -> {
+                            write(chunk, processor.process(replica, prepared), out, window);
+                            written.set(true);
+                        });
+                Runnable done = () -> {
+                    if (!written.get()) fail(new IOException("Trecho na posição " + chunk.start() + " não foi concluído"));
+                };
+                if (inference == null) {
+                    try {
+                        work.join().run();
+                    } catch (Exception e) {
+                        System.err.println("Erro no processamento do lote: " + e);
+                    } finally {
+                        done.run();
+                    }
+                } else {
+                    inference.put(work, done);
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } finally {
+            if (inference != null) inference.drain(Long.MAX_VALUE);
+        }
+    }
+
+    private void write(BulkSource.Chunk chunk, List<ResultMessage> results, BulkOutput out, Semaphore window) {
+        for (ResultMessage result : results) {
+            if ("ERRO".equals(result.getLabel())) errors.incrementAndGet();
+        }
+        images.addAndGet(results.size());
+        try {
+            window.release(out.complete(chunk, results));
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) System.err.printf("[%s] Erro no processamento em lote: %s\n", service, e);
+    }
+
+    private ScheduledExecutorService startReporting(BulkSource source, BulkOutput out) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bulk-progress-" + service);
+            t.setDaemon(true);
+            return t;
+        });
+        if (reportIntervalSeconds <= 0) return reporter;
+        long total = source.total();
+        long[] last = {0};
+        reporter.scheduleAtFixedRate(() -> {
+            long done = images.get();
+            long position = out.position();
+            System.out.printf("[%s] Lote: %d imagens (%.1f imagens/s) | posição %d%s\n", service, done,
+                    (done - last[0]) / (double) reportIntervalSeconds, position,
+                    total >= 0 ? String.format(" de %d (%.1f%%)", total, 100.0 * position / Math.max(1, total)) : "");
+            last[0] = done;
+        }, reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+        return reporter;
+    }
+}
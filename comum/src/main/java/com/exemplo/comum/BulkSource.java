@@ -0,0 +1,225 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Origem do processamento em lote fora do broker: as imagens de um diretório, em
+ * ordem de caminho, ou um log gravado de mensagens (JSON Lines, uma mensagem no
+ * formato JSON do gerador por linha, opcionalmente {@code .gz}). Entrega trechos
+ * consecutivos a vários workers; a posição é o número de registros (arquivos ou
+ * linhas) já entregues, e é ela que o checkpoint guarda.
+ * <p>
+ * A leitura dos arquivos e a conversão das linhas em mensagens ficam em
+ * {@link Chunk#load()}, fora do lock, na thread de cada worker.
+ */
+public abstract class BulkSource implements Closeable {
+    private static final List<String> IMAGE_EXTENSIONS = List.of(".jpg", ".jpeg", ".png");
+
+    protected long position;
+    private long sequence;
+
+    /** Diretório de imagens ou log de mensagens; no log, só as mensagens de {@code type} (ou sem tipo). */
+    public static BulkSource open(Path path, String type, ObjectMapper objectMapper) throws IOException {
+        if (Files.isDirectory(path)) return new DirectorySource(path);
+        if (!Files.isRegularFile(path)) throw new IOException("Origem não encontrada: " + path);
+        return new LogSource(path, type, objectMapper);
+    }
+
+    /** Caminho absoluto da origem, conferido ao retomar de um checkpoint. */
+    public abstract String describe();
+
+    /** Total de registros, ou -1 quando só se sabe lendo até o fim (log). */
+    public abstract long total();
+
+    /** Registros já entregues. */
+    public synchronized long position() { return position; }
+
+    /** Pula os primeiros {@code count} registros e devolve a chave do último, ou {@code null} se {@code count} = 0. */
+    public abstract String skip(long count) throws IOException;
+
+    /** Próximo trecho com até {@code size} registros, ou {@code null} no fim da origem. */
+    public abstract Chunk next(int size) throws IOException;
+
+    protected Chunk chunk(long end, String lastKey, Loader loader) {
+        Chunk chunk = new Chunk(sequence++, position, end, lastKey, loader);
+        position = end;
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {}
+
+    interface Loader {
+        List<ImageMessage> load(Chunk chunk) throws IOException;
+    }
+
+    /**
+     * Registros {@code [start, end)} da origem. {@code sequence} ordena os trechos na
+     * gravação; {@code lastKey} identifica o último registro (caminho ou linha).
+     */
+    public static final class Chunk {
+        private final long sequence;
+        private final long start;
+        private final long end;
+        private final String lastKey;
+        private final Loader loader;
+        private int rejected;
+        private int skipped;
+
+        Chunk(long sequence, long start, long end, String lastKey, Loader loader) {
+            this.sequence = sequence;
+            this.start = start;
+            this.end = end;
+            this.lastKey = lastKey;
+            this.loader = loader;
+        }
+
+        public long sequence() { return sequence; }
+        public long start() { return start; }
+        public long end() { return end; }
+        public String lastKey() { return lastKey; }
+        /** Registros ilegíveis (arquivo ou JSON inválido). */
+        public int rejected() { return rejected; }
+        /** Mensagens do log destinadas ao outro analisador. */
+        public int skipped() { return skipped; }
+
+        /** Lê as imagens do trecho; registros ilegíveis são contados e ficam de fora. */
+        public List<ImageMessage> load() throws IOException {
+            return loader.load(this);
+        }
+    }
+
+    private static final class DirectorySource extends BulkSource {
+        private final Path root;
+        private final List<Path> files;
+
+        DirectorySource(Path root) throws IOException {
+            this.root = root.toAbsolutePath().normalize();
+            try (Stream<Path> walk = Files.walk(this.root)) {
+                this.files = walk.filter(Files::isRegularFile)
+                        .filter(p -> IMAGE_EXTENSIONS.stream()
+                                .anyMatch(ext -> p.getFileName().toString().toLowerCase().endsWith(ext)))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+
+        @Override
+        public String describe() { return root.toString(); }
+
+        @Override
+        public long total() { return files.size(); }
+
+        @Override
+        public synchronized String skip(long count) {
+            position = Math.min(count, files.size());
+            return position == 0 ? null : key(files.get((int) position - 1));
+        }
+
+        @Override
+        public synchronized Chunk next(int size) {
+            if (position >= files.size()) return null;
+            int start = (int) position;
+            int end = Math.min(files.size(), start + size);
+            List<Path> paths = files.subList(start, end);
+            return chunk(end, key(paths.get(paths.size() - 1)), c -> read(c, paths));
+        }
+
+        private List<ImageMessage> read(Chunk chunk, List<Path> paths) {
+            List<ImageMessage> messages = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                String key = key(path);
+                try {
+                    messages.add(ImageMessage.of(key, key, 0, Files.readAllBytes(path)));
+                } catch (IOException e) {
+                    System.err.println("Erro ao ler " + path + ": " + e.getMessage());
+                    chunk.rejected++;
+                }
+            }
+            return messages;
+        }
+
+        /** Caminho relativo à raiz, com {@code /}: id e nome do arquivo nos resultados. */
+        private String key(Path path) {
+            return root.relativize(path).toString().replace('\\', '/');
+        }
+    }
+
+    private static final class LogSource extends BulkSource {
+        private final Path path;
+        private final String type;
+        private final ObjectMapper objectMapper;
+        private final BufferedReader reader;
+
+        LogSource(Path path, String type, ObjectMapper objectMapper) throws IOException {
+            this.path = path.toAbsolutePath().normalize();
+            this.type = type;
+            this.objectMapper = objectMapper;
+            InputStream in = Files.newInputStream(path);
+            if (path.getFileName().toString().endsWith(".gz")) in = new GZIPInputStream(in, 1 << 16);
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        @Override
+        public String describe() { return path.toString(); }
+
+        @Override
+        public long total() { return -1; }
+
+        @Override
+        public synchronized String skip(long count) throws IOException {
+            while (position < count && reader.readLine() != null) position++;
+            return position == 0 ? null : "linha " + position;
+        }
+
+        @Override
+        public synchronized Chunk next(int size) throws IOException {
+            List<String> lines = new ArrayList<>(size);
+            String line;
+            while (lines.size() < size && (line = reader.readLine()) != null) lines.add(line);
+            if (lines.isEmpty()) return null;
+            long end = position + lines.size();
+            return chunk(end, "linha " + end, c -> parse(c, lines));
+        }
+
+        private List<ImageMessage> parse(Chunk chunk, List<String> lines) {
+            List<ImageMessage> messages = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (line.isBlank()) continue;
+                try {
+                    ImageMessage msg = objectMapper.readValue(line, ImageMessage.class);
+                    if (msg.getImageData() == null) throw new IOException("sem dadosImagem");
+                    if (type != null && msg.getType() != null && !type.equals(msg.getType())) {
+                        chunk.skipped++;
+                        continue;
+                    }
+                    messages.add(msg);
+                } catch (IOException e) {
+                    System.err.printf("Linha %d inválida em %s: %s\n", chunk.start() + i + 1, path, e.getMessage());
+                    chunk.rejected++;
+                }
+            }
+            return messages;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.exemplo.comum;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log de console amostrado e assíncrono: só 1 de cada {@code sampleEvery} chamadas
+ * é formatada, e a escrita em stdout acontece em uma thread própria. Se a fila
+ * encher, a linha é descartada em vez de atrasar o processamento.
+ */
+public final class ConsoleLog {
+    private final int sampleEvery;
+    private final AtomicLong calls = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final BlockingQueue<String> lines = new ArrayBlockingQueue<>(1024);
+
+    public ConsoleLog(int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+        Thread writer = new Thread(this::drain, "console-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Indica se a próxima linha deve ser registrada; avança o contador de amostragem. */
+    public boolean sample() {
+        return calls.incrementAndGet() % sampleEvery == 0;
+    }
+
+    public void printf(String format, Object... args) {
+        if (!lines.offer(String.format(format, args))) dropped.increment();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                System.out.print(lines.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.exemplo.comum;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Laço de consumo dos analisadores: {@code workers} workers, cada um com seu canal
+ * (prefetch e acks independentes), seu micro-batcher e sua réplica do analisador.
+ * Cada lote passa por duas etapas: a preparação (decodificação, assíncrona, no pool
+ * do analisador) e o processamento (inferência e acks, em uma thread por worker).
+ * Com {@code PIPELINE_DEPTH} > 0 a preparação do próximo lote corre durante a
+ * inferência do atual; com 0, as duas etapas rodam em sequência no micro-batcher.
+ * Conta as entregas ainda sem ack para as métricas de ocupação. No encerramento,
+ * cancela os consumidores, processa os lotes já recebidos e só então fecha os canais,
+ * para que nada entregue fique pela metade.
+ * <p>
+ * Com {@code DEADLINE_ORDER=true}, cada micro-batcher entrega primeiro as mensagens de
+ * prazo mais próximo; com {@code DROP_EXPIRED}, mensagens com prazo vencido são
+ * rejeitadas (sem reenfileirar) antes de chegar ao processador, sem decodificação.
+ * Se a preparação de um lote falhar, suas entregas voltam para a fila com nack.
+ * <p>
+ * Com {@code AUTOSCALE}, um {@link Autoscaler} ajusta workers e prefetch conforme a
+ * profundidade da fila e a vazão, dentro dos limites de {@link ScalingPolicy}.
+ */
+public class ConsumerRuntime<R> implements Autoscaler.Target {
+    public interface BatchPreparer<P> {
+        CompletableFuture<P> prepare(List<Delivery> batch);
+    }
+
+    /**
+     * Processa um lote preparado e confirma suas entregas. Se falhar, deve devolver à
+     * fila ({@link #requeue}) as que ainda não confirmou, para que um ack múltiplo de um
+     * lote seguinte não as confirme sem análise.
+     */
+    public interface BatchProcessor<R, P> {
+        void process(Channel channel, R replica, P prepared);
+    }
+
+    private interface WorkerFactory<W> {
+        W create(int index) throws IOException;
+    }
+
+    private final String service;
+    private final String queue;
+    private final int batchSize;
+    private final long batchTimeoutMs;
+    private volatile int prefetch;
+    private final int workers;
+    private final long drainTimeoutMs;
+    private final int pipelineDepth;
+    private final boolean deadlineOrder;
+    private final boolean dropExpired;
+    private final int maxPriority;
+    private final Metrics metrics;
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong settled = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final List<Worker> workerPool = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<R> idleReplicas = new ArrayDeque<>();
+    private final ScalingPolicy scaling;
+    private final long scaleIntervalMs;
+    private WorkerFactory<Worker> workerFactory;
+    private int nextWorker;
+    private Channel probeChannel;
+    private Autoscaler autoscaler;
+
+    public ConsumerRuntime(String service, String queue, Env env, int defaultBatchSize, int cores, Metrics metrics) {
+        this.service = service;
+        this.queue = queue;
+        this.batchSize = env.getInt("BATCH_SIZE", defaultBatchSize);
+        this.batchTimeoutMs = env.getInt("BATCH_TIMEOUT_MS", 20);
+        this.scaling = "true".equalsIgnoreCase(env.get("AUTOSCALE")) ? ScalingPolicy.fromEnv(env, cores, batchSize) : null;
+        this.scaleIntervalMs = env.getInt("SCALE_INTERVAL_S", 5) * 1000L;
+        int configuredPrefetch = env.getInt("PREFETCH", batchSize * 2);
+        this.prefetch = scaling != null ? scaling.clampPrefetch(configuredPrefetch) : configuredPrefetch;
+        int configuredWorkers = configureWorkers(env, cores);
+        this.workers = scaling != null ? scaling.clampWorkers(configuredWorkers) : configuredWorkers;
+        this.drainTimeoutMs = env.getInt("DRAIN_TIMEOUT_MS", 10000);
+        this.pipelineDepth = env.getInt("PIPELINE_DEPTH", 2);
+        // Opcional: fora da ordem dos tags, cada lote precisa de um ack por entrega em vez de um ack múltiplo.
+        this.deadlineOrder = "true".equalsIgnoreCase(env.get("DEADLINE_ORDER"));
+        this.dropExpired = !env.isDisabled("DROP_EXPIRED");
+        this.maxPriority = env.getInt("MAX_PRIORITY", Deadlines.DEFAULT_MAX_PRIORITY);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Define o número de workers: {@code WORKERS} se informado, senão {@code cores} /
+     * threads OMP por operação do ND4J. Com vários workers e sem {@code OMP_NUM_THREADS},
+     * limita as threads do ND4J para que os workers juntos não ultrapassem {@code cores}.
+     * O limite do ND4J vale para a JVM inteira, então só é reduzido, nunca aumentado.
+     */
+    public static int configureWorkers(Env env, int cores) {
+        int ompThreads = Env.plain().getInt("OMP_NUM_THREADS", 0);
+        int workers = env.getInt("WORKERS", 0);
+        if (workers <= 0) {
+            int opThreads = ompThreads > 0 ? ompThreads : Nd4j.getEnvironment().maxMasterThreads();
+            workers = Math.max(1, cores / Math.max(1, opThreads));
+        } else if (ompThreads <= 0 && workers > 1) {
+            int perWorker = Math.max(1, cores / workers);
+            if (perWorker < Nd4j.getEnvironment().maxMasterThreads()) {
+                Nd4j.getEnvironment().setMaxMasterThreads(perWorker);
+            }
+        }
+        System.out.printf("Workers: %d | núcleos: %d | threads ND4J por operação: %d\n",
+                workers, cores, Nd4j.getEnvironment().maxMasterThreads());
+        return workers;
+    }
+
+    public int batchSize() { return batchSize; }
+
+    /** Workers ativos (antes do início, os configurados). */
+    @Override
+    public int workers() { return workerFactory == null ? workers : workerPool.size(); }
+
+    @Override
+    public int prefetch() { return prefetch; }
+
+    @Override
+    public long inFlight() { return inFlight.get(); }
+
+    @Override
+    public long settled() { return settled.get(); }
+
+    /** Com a ordem por prazo os lotes não seguem os delivery tags: o ack deve ser individual. */
+    public boolean deadlineOrder() { return deadlineOrder; }
+
+    /** Argumentos da fila consumida, iguais aos declarados pelo gerador. */
+    public Map<String, Object> queueArguments() { return Deadlines.queueArguments(maxPriority); }
+
+    /**
+     * Inicia os workers; {@code replicas} recebe o índice do worker e devolve seu analisador.
+     * {@code preparer} recebe as entregas válidas (já sem as expiradas) de cada lote.
+     */
+    public <P> void start(Connection connection, IntFunction<R> replicas, BatchPreparer<P> preparer,
+                          BatchProcessor<R, P> processor) throws IOException {
+        registerMetrics();
+        System.out.printf("[%s] Lotes de até %d mensagens, espera máxima de %d ms, prefetch %d por worker%s%s\n",
+                service, batchSize, batchTimeoutMs, prefetch, deadlineOrder ? ", ordem por prazo" : "",
+                pipelineDepth > 0 ? ", " + pipelineDepth + " lotes em preparação" : "");
+        synchronized (this) {
+            workerFactory = index -> newWorker(connection, index, replicas, preparer, processor);
+            for (int i = 0; i < workers; i++) workerPool.add(workerFactory.create(nextWorker++));
+        }
+        if (scaling != null) {
+            probeChannel = connection.createChannel();
+            autoscaler = new Autoscaler(service, scaling, Autoscaler.QueueProbe.rabbit(probeChannel, queue), this, metrics);
+            autoscaler.start(scaleIntervalMs);
+            System.out.printf("[%s] Autoscaler ativo, amostra a cada %d s\n", service, scaleIntervalMs / 1000);
+        }
+    }
+
+    private <P> Worker newWorker(Connection connection, int i, IntFunction<R> replicas, BatchPreparer<P> preparer,
+                                 BatchProcessor<R, P> processor) throws IOException {
+        Channel channel = connection.createChannel();
+        channel.basicQos(prefetch);
+        R reused = idleReplicas.pollLast();
+        R replica = reused != null ? reused : replicas.apply(i);
+        Worker worker = new Worker(channel, replica);
+        if (pipelineDepth > 0) {
+            worker.inference = new InferenceStage("inference-" + service + "-" + i, pipelineDepth);
+            worker.inference.start();
+        }
+        worker.batcher = new MicroBatcher("micro-batcher-" + service + "-" + i, batchSize, batchTimeoutMs,
+                deadlineOrder ? Deadlines.EARLIEST_FIRST : null, batch -> {
+            List<Delivery> live = dropExpired ? dropExpired(channel, batch) : batch;
+            int size = batch.size();
+            if (live.isEmpty()) {
+                settle(size);
+                return;
+            }
+            CompletableFuture<Runnable> work = prepare(preparer, new ArrayList<>(live))
+                    .handle((prepared, error) -> error == null
+                            ? () -> processor.process(channel, replica, prepared)
+                            : () -> requeue(channel, tags(live), error));
+            if (worker.inference == null) {
+                try {
+                    work.join().run();
+                } finally {
+                    settle(size);
+                }
+                return;
+            }
+            try {
+                worker.inference.put(work, () -> settle(size));
+            } catch (InterruptedException e) {
+                settle(size);
+                Thread.currentThread().interrupt();
+            }
+        });
+        worker.batcher.start();
+
+        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+            inFlight.incrementAndGet();
+            worker.batcher.submit(delivery);
+        };
+        worker.consumerTag = channel.basicConsume(queue, false, deliverCallback, consumerTag -> {});
+        return worker;
+    }
+
+    private static <P> CompletableFuture<P> prepare(BatchPreparer<P> preparer, List<Delivery> batch) {
+        try {
+            return preparer.prepare(batch);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static List<Long> tags(List<Delivery> batch) {
+        List<Long> tags = new ArrayList<>(batch.size());
+        for (Delivery delivery : batch) tags.add(delivery.getEnvelope().getDeliveryTag());
+        return tags;
+    }
+
+    /**
+     * Devolve à fila, com nack individual, entregas de um lote que falhou. Chamado pelo
+     * runtime quando a preparação falha e pelo processador com as que não confirmou.
+     */
+    public void requeue(Channel channel, List<Long> tags, Throwable cause) {
+        if (tags.isEmpty()) return;
+        Throwable error = cause instanceof CompletionException && cause.getCause() != null
+                ? cause.getCause() : cause;
+        System.err.printf("[%s] Erro no lote, %d entregas voltam para a fila: %s\n", service, tags.size(), error);
+        for (long tag : tags) {
+            try {
+                channel.basicNack(tag, false, true);
+                metrics.increment("messages_requeued");
+            } catch (IOException e) {
+                System.err.println("Erro ao devolver mensagem para a fila: " + e.getMessage());
+            }
+        }
+    }
+
+    private void settle(int count) {
+        inFlight.addAndGet(-count);
+        settled.addAndGet(count);
+    }
+
+    /**
+     * Aplica uma decisão do autoscaler: novo prefetch em todos os canais e workers
+     * criados ou retirados. Um worker retirado para de consumir, conclui o que já
+     * recebeu (até {@code DRAIN_TIMEOUT_MS}, fora do lock) e fecha o canal; sua réplica
+     * fica guardada para o próximo worker criado, em vez de um novo clone do modelo.
+     */
+    @Override
+    public void resize(int targetWorkers, int targetPrefetch) {
+        List<Worker> retired = new ArrayList<>();
+        synchronized (this) {
+            if (workerFactory == null) return;
+            adjust(targetWorkers, targetPrefetch, retired);
+        }
+        if (retired.isEmpty()) return;
+        boolean drained = shutdown(retired);
+        synchronized (this) {
+            // Uma réplica ainda em uso (drenagem esgotada) não pode ir para outro worker.
+            if (drained) for (Worker worker : retired) idleReplicas.addLast(worker.replica);
+        }
+    }
+
+    private void adjust(int targetWorkers, int targetPrefetch, List<Worker> retired) {
+        if (targetPrefetch != prefetch) {
+            prefetch = targetPrefetch;
+            for (Worker worker : workerPool) {
+                try {
+                    worker.channel.basicQos(targetPrefetch);
+                } catch (IOException e) {
+                    System.err.println("Erro ao ajustar prefetch: " + e.getMessage());
+                }
+            }
+        }
+        while (workerPool.size() < targetWorkers) {
+            try {
+                workerPool.add(workerFactory.create(nextWorker++));
+            } catch (IOException e) {
+                System.err.println("Erro ao criar worker: " + e.getMessage());
+                return;
+            }
+        }
+        while (workerPool.size() > Math.max(1, targetWorkers)) {
+            retired.add(workerPool.remove(workerPool.size() - 1));
+        }
+    }
+
+    /** Rejeita sem reenfileirar as entregas com prazo vencido e devolve as demais. */
+    private List<Delivery> dropExpired(Channel channel, List<Delivery> batch) {
+        long now = System.currentTimeMillis();
+        List<Delivery> live = null;
+        for (int i = 0; i < batch.size(); i++) {
+            Delivery delivery = batch.get(i);
+            if (!Deadlines.isExpired(delivery, now)) {
+                if (live != null) live.add(delivery);
+                continue;
+            }
+            if (live == null) live = new ArrayList<>(batch.subList(0, i));
+            try {
+                channel.basicNack(delivery.getEnvelope().getDeliveryTag(), false, false);
+                metrics.increment("messages_expired");
+                expired.incrementAndGet();
+            } catch (IOException e) {
+                System.err.println("Erro ao descartar mensagem expirada: " + e.getMessage());
+            }
+        }
+        return live != null ? live : batch;
+    }
+
+    private void registerMetrics() {
+        metrics.describe("messages_expired", "Mensagens descartadas sem análise por prazo vencido");
+        metrics.describe("messages_requeued", "Mensagens devolvidas à fila por falha no lote");
+        metrics.gauge("messages_in_flight", "Entregas recebidas ainda sem ack", inFlight::get);
+        metrics.gauge("prefetch_utilization", "Entregas sem ack / (prefetch x workers)",
+                () -> inFlight.get() / (double) Math.max(1, prefetch * workerPool.size()));
+        metrics.gauge("workers", "Workers consumindo a fila", workerPool::size);
+        metrics.gauge("pipeline_batches", "Lotes em decodificação ou aguardando a inferência",
+                () -> workerPool.stream().mapToInt(w -> w.inference != null ? w.inference.pending() : 0).sum());
+    }
+
+    /**
+     * Cancela os consumidores, drena os micro-batchers (até {@code DRAIN_TIMEOUT_MS} no
+     * total) e fecha os canais. O que não for processado a tempo fica sem ack e volta
+     * para a fila quando o canal fecha.
+     */
+    public void close() {
+        if (autoscaler != null) autoscaler.stop();
+        synchronized (this) {
+            shutdown(workerPool);
+        }
+        try { if (probeChannel != null && probeChannel.isOpen()) probeChannel.close(); } catch (Exception ignored) {}
+        System.out.printf("[%s] Consumo encerrado, %d entregas sem ack, %d descartadas por prazo vencido\n",
+                service, inFlight.get(), expired.get());
+    }
+
+    /** Devolve {@code false} se algum worker não terminou dentro do prazo. */
+    private boolean shutdown(List<Worker> workers) {
+        for (Worker worker : workers) {
+            try {
+                if (worker.consumerTag != null && worker.channel.isOpen()) worker.channel.basicCancel(worker.consumerTag);
+            } catch (Exception e) {
+                System.err.println("Erro ao cancelar consumidor: " + e.getMessage());
+            }
+        }
+        boolean drained = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        for (Worker worker : workers) {
+            int pending = worker.batcher.pending();
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (!worker.batcher.drain(remaining)) {
+                drained = false;
+                System.err.printf("[%s] Prazo de drenagem esgotado, até %d entregas voltam para a fila\n", service, pending);
+            }
+        }
+        for (Worker worker : workers) {
+            if (worker.inference == null) continue;
+            int pending = worker.inference.pending();
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (!worker.inference.drain(remaining)) {
+                drained = false;
+                System.err.printf("[%s] Prazo de drenagem esgotado, até %d lotes voltam para a fila\n", service, pending);
+            }
+        }
+        for (Worker worker : workers) {
+            try { if (worker.channel.isOpen()) worker.channel.close(); } catch (Exception ignored) {}
+        }
+        return drained;
+    }
+
+    final class Worker {
+        final Channel channel;
+        final R replica;
+        MicroBatcher batcher;
+        InferenceStage inference;
+        String consumerTag;
+
+        Worker(Channel channel, R replica) {
+            this.channel = channel;
+            this.replica = replica;
+        }
+    }
+}
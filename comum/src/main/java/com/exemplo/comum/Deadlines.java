@@ -0,0 +1,69 @@
+package com.exemplo.comum;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prazo e prioridade das mensagens de imagem. O gerador grava o instante limite
+ * (epoch em ms) no header {@code deadlineMs} e a prioridade na propriedade AMQP
+ * {@code priority}; as filas de imagens são declaradas com {@code x-max-priority}.
+ * Tudo é lido das propriedades, sem decodificar o corpo.
+ */
+public final class Deadlines {
+    public static final String HEADER = "deadlineMs";
+    public static final int DEFAULT_MAX_PRIORITY = 10;
+
+    /**
+     * Ordem earliest-deadline-first: prazo mais próximo primeiro (sem prazo por último),
+     * depois maior prioridade e, por fim, ordem de entrega no canal.
+     */
+    public static final Comparator<Delivery> EARLIEST_FIRST = Comparator
+            .comparingLong(Deadlines::sortKey)
+            .thenComparing(Comparator.comparingInt(Deadlines::priorityOf).reversed())
+            .thenComparingLong(d -> d.getEnvelope().getDeliveryTag());
+
+    private Deadlines() {}
+
+    /** Instante limite da mensagem em ms, ou 0 se ela não tiver prazo. */
+    public static long deadlineOf(Delivery delivery) {
+        Map<String, Object> headers = delivery.getProperties().getHeaders();
+        Object value = headers != null ? headers.get(HEADER) : null;
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    public static int priorityOf(Delivery delivery) {
+        Integer priority = delivery.getProperties().getPriority();
+        return priority != null ? priority : 0;
+    }
+
+    public static boolean isExpired(Delivery delivery, long nowMs) {
+        long deadline = deadlineOf(delivery);
+        return deadline > 0 && deadline < nowMs;
+    }
+
+    /**
+     * Argumentos das filas de imagens. Precisam ser iguais em todos os processos que
+     * declaram a fila; {@code maxPriority} 0 declara a fila sem prioridades.
+     */
+    public static Map<String, Object> queueArguments(int maxPriority) {
+        Map<String, Object> args = new HashMap<>();
+        if (maxPriority > 0) args.put("x-max-priority", Math.min(255, maxPriority));
+        return args;
+    }
+
+    /** Grava prazo (se {@code ttlMs} > 0) e prioridade nas propriedades de uma mensagem criada em {@code timestampMs}. */
+    public static void apply(AMQP.BasicProperties.Builder builder, Map<String, Object> headers,
+                             long timestampMs, long ttlMs, int priority) {
+        if (ttlMs > 0) headers.put(HEADER, timestampMs + ttlMs);
+        if (priority > 0) builder.priority(priority);
+    }
+
+    private static long sortKey(Delivery delivery) {
+        long deadline = deadlineOf(delivery);
+        return deadline > 0 ? deadline : Long.MAX_VALUE;
+    }
+}
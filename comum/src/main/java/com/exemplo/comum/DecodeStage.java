@@ -0,0 +1,179 @@
+package com.exemplo.comum;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Etapa de decodificação/redimensionamento, separada da inferência: as imagens de
+ * um lote são decodificadas em paralelo num pool próprio e o lote só segue para o
+ * modelo quando todas terminam. Imagens já no cache não são decodificadas.
+ * <p>
+ * Com {@code subsample}, JPEG/PNG grandes são lidos já reduzidos
+ * ({@link ImageReadParam#setSourceSubsampling}) para no mínimo o tamanho de destino,
+ * o que poupa decodificação e redimensionamento às custas de um pouco de nitidez.
+ */
+public final class DecodeStage {
+    public interface Decoder {
+        BufferedImage decode(byte[] content) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final boolean subsample;
+    private final Metrics metrics;
+
+    public DecodeStage(String name, int threads, boolean subsample, Metrics metrics) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.subsample = subsample;
+        this.metrics = metrics;
+    }
+
+    /** {@code DECODE_THREADS} (padrão {@code cores}) e {@code DECODE_SUBSAMPLING} (padrão desligado). */
+    public static DecodeStage fromEnv(String service, Env env, int cores, Metrics metrics) {
+        return new DecodeStage("decode-" + service, env.getInt("DECODE_THREADS", cores),
+                "true".equalsIgnoreCase(env.get("DECODE_SUBSAMPLING")), metrics);
+    }
+
+    public Executor executor() { return executor; }
+
+    public void shutdown() { executor.shutdownNow(); }
+
+    /**
+     * Lê a imagem; com subamostragem, pula linhas/colunas na decodificação sem descer
+     * abaixo de {@code width} x {@code height}. Falha se o formato não for reconhecido.
+     */
+    public BufferedImage read(byte[] content, int width, int height) throws IOException {
+        // Cache em memória: a imagem já está em um array, e o cache em arquivo temporário do
+        // ImageIO registra um hook de encerramento, o que falha se a JVM já estiver parando.
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IOException("Formato de imagem não reconhecido");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsample) {
+                    int factor = Math.min(reader.getWidth(0) / width, reader.getHeight(0) / height);
+                    if (factor > 1) param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Consulta o cache e decodifica em paralelo as imagens ausentes. O futuro completa
+     * quando todas terminam; falhas de decodificação viram imagem {@code null}.
+     */
+    public <T> CompletableFuture<Batch<T>> decode(List<byte[]> contents, ResultCache<T> cache, Decoder decoder) {
+        int n = contents.size();
+        List<T> cached = new ArrayList<>(Collections.nCopies(n, null));
+        List<ResultCache.Key> keys = cache.isEnabled() ? new ArrayList<>(n) : null;
+        LongAdder decodeNanos = new LongAdder();
+        List<CompletableFuture<BufferedImage>> images = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            byte[] content = contents.get(i);
+            if (keys != null) {
+                ResultCache.Key key = ResultCache.keyOf(content);
+                keys.add(key);
+                T hit = cache.get(key);
+                if (hit != null) {
+                    cached.set(i, hit);
+                    images.add(CompletableFuture.completedFuture(null));
+                    continue;
+                }
+            }
+            images.add(CompletableFuture.supplyAsync(() -> decodeOne(content, decoder, decodeNanos), executor));
+        }
+        return CompletableFuture.allOf(images.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<BufferedImage> decoded = new ArrayList<>(n);
+            for (CompletableFuture<BufferedImage> image : images) decoded.add(image.join());
+            return new Batch<>(cache, keys, cached, decoded, decodeNanos.sum());
+        });
+    }
+
+    private BufferedImage decodeOne(byte[] content, Decoder decoder, LongAdder decodeNanos) {
+        long start = System.nanoTime();
+        try {
+            return decoder.decode(content);
+        } catch (Exception e) {
+            System.err.println("Erro ao decodificar imagem: " + e.getMessage());
+            return null;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            decodeNanos.add(nanos);
+            metrics.record("decode", nanos);
+        }
+    }
+
+    /** Lote decodificado: resultados do cache e imagens prontas para o modelo. */
+    public static final class Batch<T> {
+        private final ResultCache<T> cache;
+        private final List<ResultCache.Key> keys;
+        private final List<T> results;
+        private final List<BufferedImage> images;
+        private final long decodeNanos;
+
+        Batch(ResultCache<T> cache, List<ResultCache.Key> keys, List<T> results, List<BufferedImage> images,
+              long decodeNanos) {
+            this.cache = cache;
+            this.keys = keys;
+            this.results = results;
+            this.images = images;
+            this.decodeNanos = decodeNanos;
+        }
+
+        /**
+         * Completa o lote: {@code infer} recebe as imagens que não vieram do cache (com
+         * {@code null} nas que falharam) e devolve um resultado para cada uma. Os
+         * resultados aceitos por {@code cacheable} são guardados no cache, a menos que
+         * ele tenha sido invalidado durante a inferência (geração lida antes dela).
+         */
+        public List<T> complete(StageTimings timings, Function<List<BufferedImage>, List<T>> infer,
+                                Predicate<T> cacheable) {
+            timings.add("decode", decodeNanos);
+            List<Integer> missing = new ArrayList<>();
+            List<BufferedImage> toInfer = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) != null) continue;
+                missing.add(i);
+                toInfer.add(images.get(i));
+            }
+            if (missing.isEmpty()) return results;
+
+            long generation = keys != null ? cache.generation() : 0;
+            List<T> computed = infer.apply(toInfer);
+            for (int j = 0; j < computed.size(); j++) {
+                int i = missing.get(j);
+                T result = computed.get(j);
+                results.set(i, result);
+                if (keys != null && cacheable.test(result)) cache.put(keys.get(i), result, generation);
+            }
+            return results;
+        }
+    }
+}
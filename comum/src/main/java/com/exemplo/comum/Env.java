@@ -0,0 +1,56 @@
+package com.exemplo.comum;
+
+/**
+ * Configuração por variáveis de ambiente. Com prefixo, {@code PREFIXO_NOME} tem
+ * precedência sobre {@code NOME}: no processo com os dois analisadores,
+ * {@code SENTIMENTO_BATCH_SIZE} vale só para um deles e {@code BATCH_SIZE} para ambos.
+ */
+public final class Env {
+    private static final Env PLAIN = new Env("");
+
+    private final String prefix;
+
+    private Env(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public static Env plain() { return PLAIN; }
+
+    public static Env prefixed(String prefix) {
+        return new Env(prefix.endsWith("_") ? prefix : prefix + "_");
+    }
+
+    /** Valor da variável (com prefixo, se houver, senão sem), ou {@code null} se ausente ou vazia. */
+    public String get(String name) {
+        if (!prefix.isEmpty()) {
+            String value = System.getenv(prefix + name);
+            if (value != null && !value.isBlank()) return value.trim();
+        }
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public String get(String name, String defaultValue) {
+        String value = get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return (int) getDouble(name, defaultValue);
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        String value = get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + prefix + name + ": " + value);
+        }
+    }
+
+    /** {@code true} se a variável existir e for {@code false} (recursos ligados por padrão). */
+    public boolean isDisabled(String name) {
+        return "false".equalsIgnoreCase(get(name));
+    }
+}
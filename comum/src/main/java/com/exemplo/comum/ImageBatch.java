@@ -0,0 +1,74 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Delivery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Lote de mensagens de imagem preparado para a inferência: mensagens válidas com
+ * seus delivery tags, tags das inválidas (a rejeitar) e as imagens já decodificadas.
+ */
+public final class ImageBatch<T> {
+    private final List<ImageMessage> messages;
+    private final List<Long> tags;
+    private final List<Long> invalidTags;
+    private final long preparedAt;
+    private final DecodeStage.Batch<T> images;
+
+    private ImageBatch(List<ImageMessage> messages, List<Long> tags, List<Long> invalidTags, long preparedAt,
+                       DecodeStage.Batch<T> images) {
+        this.messages = messages;
+        this.tags = tags;
+        this.invalidTags = invalidTags;
+        this.preparedAt = preparedAt;
+        this.images = images;
+    }
+
+    public List<ImageMessage> messages() { return messages; }
+    public List<Long> tags() { return tags; }
+    public List<Long> invalidTags() { return invalidTags; }
+    /** Instante (ms) em que o lote saiu do micro-batcher; base da espera em fila. */
+    public long preparedAt() { return preparedAt; }
+    public DecodeStage.Batch<T> images() { return images; }
+
+    /**
+     * Lê as mensagens do lote na thread atual e entrega as imagens a {@code decode};
+     * o futuro completa quando a decodificação termina.
+     */
+    public static <T> CompletableFuture<ImageBatch<T>> prepare(
+            List<Delivery> batch, ObjectMapper objectMapper,
+            Function<List<byte[]>, CompletableFuture<DecodeStage.Batch<T>>> decode) {
+        long now = System.currentTimeMillis();
+        List<ImageMessage> messages = new ArrayList<>(batch.size());
+        List<Long> tags = new ArrayList<>(batch.size());
+        List<Long> invalid = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>(batch.size());
+        for (Delivery delivery : batch) {
+            long tag = delivery.getEnvelope().getDeliveryTag();
+            try {
+                ImageMessage msg = ImageMessage.decode(delivery, objectMapper);
+                messages.add(msg);
+                tags.add(tag);
+                contents.add(msg.getImageData());
+            } catch (Exception e) {
+                System.err.println("Mensagem inválida descartada: " + e.getMessage());
+                invalid.add(tag);
+            }
+        }
+        return decode.apply(contents).thenApply(images -> new ImageBatch<>(messages, tags, invalid, now, images));
+    }
+
+    /** Lote de mensagens já lidas, sem delivery tags (processamento em lote fora do broker). */
+    public static <T> CompletableFuture<ImageBatch<T>> of(
+            List<ImageMessage> messages,
+            Function<List<byte[]>, CompletableFuture<DecodeStage.Batch<T>>> decode) {
+        long now = System.currentTimeMillis();
+        List<byte[]> contents = new ArrayList<>(messages.size());
+        for (ImageMessage msg : messages) contents.add(msg.getImageData());
+        return decode.apply(contents).thenApply(images -> new ImageBatch<>(messages, List.of(), List.of(), now, images));
+    }
+}
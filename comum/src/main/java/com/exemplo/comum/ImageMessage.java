@@ -0,0 +1,99 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.MessageProperties;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mensagem de imagem em um dos dois formatos do gerador: binário (corpo com a
+ * imagem e metadados nas propriedades AMQP) ou JSON com a imagem em base64,
+ * escolhido pelo {@code content-type}. O gerador codifica com {@link #binaryProperties}
+ * e os consumidores decodificam com {@link #decode}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ImageMessage {
+    public static final String CONTENT_TYPE_JSON = "application/json";
+    /** Instante de envio em milissegundos: a propriedade timestamp do AMQP só guarda segundos. */
+    public static final String HEADER_TIMESTAMP_MS = "timestampMs";
+    public static final String HEADER_FILE_NAME = "nomeArquivo";
+
+    @JsonProperty("id") private String id;
+    @JsonProperty("tipo") private String type;
+    @JsonProperty("nomeArquivo") private String fileName;
+    @JsonProperty("timestamp") private long timestamp;
+    @JsonProperty("dadosImagem") private byte[] imageData;
+
+    public String getId() { return id; }
+    /** {@code face} ou {@code team} (campo JSON ou propriedade {@code type} do AMQP); {@code null} quando não informado. */
+    public String getType() { return type; }
+    public String getFileName() { return fileName; }
+    public long getTimestamp() { return timestamp; }
+    public byte[] getImageData() { return imageData; }
+
+    /** Mensagem montada fora do broker (processamento em lote de um diretório). */
+    public static ImageMessage of(String id, String fileName, long timestamp, byte[] imageData) {
+        ImageMessage msg = new ImageMessage();
+        msg.id = id;
+        msg.fileName = fileName;
+        msg.timestamp = timestamp;
+        msg.imageData = imageData;
+        return msg;
+    }
+
+    public static ImageMessage decode(Delivery delivery, ObjectMapper objectMapper) throws IOException {
+        AMQP.BasicProperties props = delivery.getProperties();
+        String contentType = props.getContentType();
+        if (contentType == null || contentType.equals(CONTENT_TYPE_JSON) || contentType.startsWith("text/")) {
+            return objectMapper.readValue(delivery.getBody(), ImageMessage.class);
+        }
+
+        // Formato binário: o corpo já é a imagem, sem cópia nem base64.
+        ImageMessage msg = new ImageMessage();
+        msg.id = props.getMessageId();
+        msg.type = props.getType();
+        Map<String, Object> headers = props.getHeaders();
+        Object timestampMs = headers != null ? headers.get(HEADER_TIMESTAMP_MS) : null;
+        if (timestampMs instanceof Number) {
+            msg.timestamp = ((Number) timestampMs).longValue();
+        } else {
+            msg.timestamp = props.getTimestamp() != null ? props.getTimestamp().getTime() : 0L;
+        }
+        Object fileName = headers != null ? headers.get(HEADER_FILE_NAME) : null;
+        msg.fileName = fileName != null ? fileName.toString() : msg.id;
+        msg.imageData = delivery.getBody();
+        return msg;
+    }
+
+    /**
+     * Propriedades AMQP do formato binário, lidas de volta por {@link #decode}: id em
+     * {@code messageId}, tipo em {@code type}, instante em {@code timestamp} e nos
+     * headers, com o nome do arquivo; o corpo é a imagem original.
+     */
+    public static AMQP.BasicProperties binaryProperties(String id, String type, String fileName, long timestamp) {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(HEADER_FILE_NAME, fileName);
+        headers.put(HEADER_TIMESTAMP_MS, timestamp);
+        return MessageProperties.PERSISTENT_BASIC.builder()
+                .contentType(imageContentType(fileName))
+                .messageId(id)
+                .type(type)
+                .timestamp(new Date(timestamp))
+                .headers(headers)
+                .build();
+    }
+
+    public static String imageContentType(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".png")) return "image/png";
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return "image/jpeg";
+        return "application/octet-stream";
+    }
+}
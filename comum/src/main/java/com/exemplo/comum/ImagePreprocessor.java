@@ -0,0 +1,94 @@
+package com.exemplo.comum;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Converte imagens já redimensionadas em tensores NHWC normalizados para [0,1].
+ * Lê diretamente o {@code byte[]} do raster ({@link DataBufferByte}), converte
+ * BGR para RGB quando necessário e reaproveita um {@code float[]} por thread, que
+ * só cresce (lotes menores usam o início dele), copiado para o INDArray em uma
+ * única operação.
+ */
+public class ImagePreprocessor {
+    private static final float[] UNIT = new float[256];
+    static {
+        for (int i = 0; i < 256; i++) UNIT[i] = i / 255.0f;
+    }
+
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final int imageType;
+    private final ThreadLocal<float[]> buffers = new ThreadLocal<>();
+
+    public ImagePreprocessor(int width, int height, int channels) {
+        if (channels != 1 && channels != 3) throw new IllegalArgumentException("channels deve ser 1 ou 3");
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+        this.imageType = channels == 1 ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR;
+    }
+
+    public int imageSize() { return width * height * channels; }
+
+    /** Tipo de {@link BufferedImage} esperado por {@link #write}. */
+    public int imageType() { return imageType; }
+
+    /**
+     * Buffer reutilizável da thread atual com espaço para pelo menos {@code count}
+     * imagens; só é realocado quando um lote maior que os anteriores chega.
+     */
+    public float[] buffer(int count) {
+        int length = count * imageSize();
+        float[] buffer = buffers.get();
+        if (buffer == null || buffer.length < length) {
+            buffer = new float[length];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /** Escreve a imagem normalizada em {@code dest} a partir da posição {@code index * imageSize()}. */
+    public void write(BufferedImage img, float[] dest, int index) {
+        if (img.getType() != imageType || img.getWidth() != width || img.getHeight() != height) {
+            img = convert(img);
+        }
+        byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        int offset = index * imageSize();
+
+        if (channels == 1) {
+            for (int i = 0; i < pixels.length; i++) {
+                dest[offset + i] = UNIT[pixels[i] & 0xFF];
+            }
+        } else {
+            for (int i = 0; i < pixels.length; i += 3) {
+                dest[offset + i] = UNIT[pixels[i + 2] & 0xFF];
+                dest[offset + i + 1] = UNIT[pixels[i + 1] & 0xFF];
+                dest[offset + i + 2] = UNIT[pixels[i] & 0xFF];
+            }
+        }
+    }
+
+    /** Tensor com as primeiras {@code count} imagens de {@code data}; o restante do buffer é ignorado. */
+    public INDArray toINDArray(float[] data, int count) {
+        INDArray array = Nd4j.createUninitialized(DataType.FLOAT, new long[]{count, height, width, channels}, 'c');
+        array.data().asNioFloat().put(data, 0, count * imageSize());
+        return array;
+    }
+
+    private BufferedImage convert(BufferedImage img) {
+        BufferedImage converted = new BufferedImage(width, height, imageType);
+        Graphics2D g = converted.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(img, 0, 0, width, height, null);
+        g.dispose();
+        return converted;
+    }
+}
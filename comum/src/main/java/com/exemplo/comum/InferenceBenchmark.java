@@ -0,0 +1,103 @@
+package com.exemplo.comum;
+
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Benchmarks de inferência sem broker, comuns aos consumidores ({@code --benchmark-workers}
+ * e {@code --benchmark-precision}). O consumidor entrega as réplicas do seu modelo e, na
+ * comparação de precisão, como extrair rótulo e confiança de cada resultado.
+ */
+public final class InferenceBenchmark {
+    private InferenceBenchmark() {}
+
+    /** Réplica do modelo vista pelos benchmarks. */
+    public interface Model<R> {
+        List<R> analyzeBatch(List<byte[]> images);
+
+        long parameterBytes();
+    }
+
+    /**
+     * Vazão com 1, 2, 4... até {@code maxWorkers} threads, cada uma com a réplica
+     * {@code replicas.apply(i)} e as threads do ND4J divididas entre elas.
+     */
+    public static void workers(int maxWorkers, int seconds, int batchSize, List<byte[]> images,
+                               IntFunction<? extends Model<?>> replicas) {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            Nd4j.getEnvironment().setMaxMasterThreads(Math.max(1, cores / workers));
+            List<Model<?>> models = new ArrayList<>();
+            for (int i = 0; i < workers; i++) models.add(replicas.apply(i));
+            models.forEach(m -> m.analyzeBatch(images.subList(0, batchSize)));
+
+            AtomicLong processed = new AtomicLong();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                Model<?> model = models.get(i);
+                int offset = i * batchSize;
+                Thread t = new Thread(() -> {
+                    for (int next = offset; System.nanoTime() < deadline; next += batchSize) {
+                        processed.addAndGet(model.analyzeBatch(BenchmarkSupport.window(images, next, batchSize)).size());
+                    }
+                });
+                threads.add(t);
+                t.start();
+            }
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            System.out.printf("workers=%d threads ND4J=%d: %.1f mensagens/s\n",
+                    workers, Nd4j.getEnvironment().maxMasterThreads(), processed.get() / (double) seconds);
+        }
+    }
+
+    /**
+     * Compara cada {@link ModelPrecision} com o {@code fp32} nas mesmas imagens e imprime a
+     * {@link PrecisionReport}: {@code label} decide a concordância e {@code score} a diferença
+     * média de confiança, que deve ser comparável entre modos (ex.: sempre da mesma classe).
+     */
+    public static <R> void precision(List<byte[]> images, int batchSize, Function<ModelPrecision, ? extends Model<R>> model,
+                                     Function<R, String> label, ToDoubleFunction<R> score) {
+        PrecisionReport report = new PrecisionReport();
+        List<R> reference = null;
+        for (ModelPrecision precision : ModelPrecision.values()) {
+            Model<R> analyzer = model.apply(precision);
+            analyzer.analyzeBatch(images.subList(0, Math.min(batchSize, images.size())));
+
+            List<R> results = new ArrayList<>(images.size());
+            long start = System.nanoTime();
+            for (int i = 0; i < images.size(); i += batchSize) {
+                results.addAll(analyzer.analyzeBatch(images.subList(i, Math.min(images.size(), i + batchSize))));
+            }
+            long elapsed = System.nanoTime() - start;
+            if (reference == null) reference = results;
+
+            int agreeing = 0;
+            double delta = 0;
+            for (int i = 0; i < results.size(); i++) {
+                R expected = reference.get(i);
+                R actual = results.get(i);
+                if (label.apply(expected).equals(label.apply(actual))) agreeing++;
+                delta += Math.abs(score.applyAsDouble(expected) - score.applyAsDouble(actual));
+            }
+            report.add(precision, analyzer.parameterBytes(), elapsed, results.size(), agreeing,
+                    delta / Math.max(1, results.size()));
+        }
+        report.print();
+    }
+}
@@ -0,0 +1,82 @@
+package com.exemplo.comum;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Última etapa do pipeline de um worker: executa em uma thread própria, na ordem de
+ * envio, os lotes cuja preparação (decodificação) já terminou. A fila comporta no
+ * máximo {@code depth} lotes em preparação ou aguardando; com ela cheia, {@link #put}
+ * bloqueia o micro-batcher, as entregas se acumulam até o prefetch e o broker para
+ * de entregar.
+ */
+final class InferenceStage {
+    private static final long IDLE_POLL_MS = 100;
+
+    private final BlockingQueue<Pending> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    InferenceStage(String name, int depth) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, depth));
+        this.worker = new Thread(this::run, name);
+    }
+
+    void start() { worker.start(); }
+
+    /** Enfileira um lote em preparação; {@code done} roda depois do processamento, com ou sem erro. */
+    void put(CompletableFuture<? extends Runnable> work, Runnable done) throws InterruptedException {
+        queue.put(new Pending(work, done));
+    }
+
+    int pending() { return queue.size(); }
+
+    /** Processa os lotes já enfileirados e aguarda a thread por até {@code timeoutMs}. */
+    boolean drain(long timeoutMs) {
+        running = false;
+        try {
+            worker.join(Math.max(1, timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!worker.isAlive()) return true;
+        worker.interrupt();
+        return false;
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            Pending next;
+            try {
+                next = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == null) continue;
+            try {
+                next.work.join().run();
+            } catch (CompletionException e) {
+                System.err.println("Erro na preparação do lote: " + e.getCause());
+            } catch (Exception e) {
+                System.err.println("Erro no processamento do lote: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                next.done.run();
+            }
+        }
+    }
+
+    private static final class Pending {
+        final CompletableFuture<? extends Runnable> work;
+        final Runnable done;
+
+        Pending(CompletableFuture<? extends Runnable> work, Runnable done) {
+            this.work = work;
+            this.done = done;
+        }
+    }
+}
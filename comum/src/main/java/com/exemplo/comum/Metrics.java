@@ -0,0 +1,199 @@
+package com.exemplo.comum;
+
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas do processo: histogramas HDR de latência por etapa, contadores e
+ * gauges, expostos em formato texto do Prometheus em {@code /metrics}.
+ * Registros são seguros entre threads e não bloqueiam o caminho das mensagens.
+ * <p>
+ * {@link #forService} devolve um registro cujas séries levam o rótulo
+ * {@code service}, para que vários serviços no mesmo processo não se misturem;
+ * todos são exportados pelo endpoint do registro global.
+ */
+public final class Metrics {
+    private static final Metrics GLOBAL = new Metrics("");
+    private static final Map<String, Metrics> SERVICES = new ConcurrentSkipListMap<>();
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static HttpServer server;
+
+    private final String labels;
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> sampledCounters = new ConcurrentSkipListMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, String> help = new ConcurrentHashMap<>();
+
+    private Metrics(String labels) {
+        this.labels = labels;
+    }
+
+    public static Metrics global() { return GLOBAL; }
+
+    /** Registro do serviço {@code service}: mesmas métricas, com o rótulo {@code service="..."}. */
+    public static Metrics forService(String service) {
+        return SERVICES.computeIfAbsent(service, s -> new Metrics("service=\"" + s + "\""));
+    }
+
+    /** Registra a duração de uma etapa para {@code count} mensagens (ex.: todas as de um lote). */
+    public void record(String stage, long nanos, int count) {
+        if (count <= 0) return;
+        timers.computeIfAbsent(stage, s -> new Timer()).record(nanos, count);
+    }
+
+    public void record(String stage, long nanos) {
+        record(stage, nanos, 1);
+    }
+
+    public void recordSince(String stage, long startNanos, int count) {
+        record(stage, System.nanoTime() - startNanos, count);
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void add(String counter, long amount) {
+        counters.computeIfAbsent(counter, c -> new LongAdder()).add(amount);
+    }
+
+    public void gauge(String name, String description, DoubleSupplier value) {
+        help.put(name, description);
+        gauges.put(name, value);
+    }
+
+    /**
+     * Contador mantido fora do registro (ex.: evicções do cache), lido a cada coleta
+     * e exportado como {@code <name>_total}; o valor deve apenas crescer.
+     */
+    public void counter(String name, String description, LongSupplier value) {
+        help.put(name, description);
+        sampledCounters.put(name, value);
+    }
+
+    public void describe(String name, String description) {
+        help.put(name, description);
+    }
+
+    /**
+     * Exporta no formato texto do Prometheus (versão 0.0.4). No registro global,
+     * inclui os registros de todos os serviços, agrupados por métrica.
+     */
+    public String scrape() {
+        List<Metrics> registries = new ArrayList<>();
+        registries.add(this);
+        if (this == GLOBAL) registries.addAll(SERVICES.values());
+
+        StringBuilder out = new StringBuilder(4096);
+        if (registries.stream().anyMatch(m -> !m.timers.isEmpty())) {
+            out.append("# HELP stage_latency_seconds Latência por etapa do processamento\n");
+            out.append("# TYPE stage_latency_seconds summary\n");
+            for (Metrics m : registries) m.timers.forEach((stage, timer) -> timer.write(out, m.labels, stage));
+        }
+
+        Map<String, StringBuilder> counterLines = new TreeMap<>();
+        Map<String, StringBuilder> gaugeLines = new TreeMap<>();
+        Map<String, String> descriptions = new TreeMap<>();
+        for (Metrics m : registries) {
+            m.counters.forEach((name, value) -> counterLines.computeIfAbsent(name, n -> new StringBuilder())
+                    .append(name).append("_total").append(m.braces()).append(' ').append(value.sum()).append('\n'));
+            m.sampledCounters.forEach((name, value) -> counterLines.computeIfAbsent(name, n -> new StringBuilder())
+                    .append(name).append("_total").append(m.braces()).append(' ').append(value.getAsLong()).append('\n'));
+            m.gauges.forEach((name, value) -> gaugeLines.computeIfAbsent(name, n -> new StringBuilder())
+                    .append(name).append(m.braces()).append(' ').append(format(value.getAsDouble())).append('\n'));
+            m.help.forEach(descriptions::putIfAbsent);
+        }
+        counterLines.forEach((name, lines) -> header(out, descriptions.get(name), name + "_total", "counter").append(lines));
+        gaugeLines.forEach((name, lines) -> header(out, descriptions.get(name), name, "gauge").append(lines));
+        return out.toString();
+    }
+
+    /** Sobe o endpoint HTTP do processo; porta 0 ou negativa desativa. */
+    public void serve(int port) throws IOException {
+        synchronized (Metrics.class) {
+            if (port <= 0 || server != null) return;
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = GLOBAL.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            });
+            server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "metrics-http");
+                t.setDaemon(true);
+                return t;
+            }));
+            server.start();
+        }
+        System.out.println("Métricas disponíveis em http://0.0.0.0:" + port + "/metrics");
+    }
+
+    public void stop() {
+        synchronized (Metrics.class) {
+            if (server != null) server.stop(0);
+            server = null;
+        }
+    }
+
+    private String braces() {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static StringBuilder header(StringBuilder out, String description, String name, String type) {
+        if (description != null) out.append("# HELP ").append(name).append(' ').append(description).append('\n');
+        return out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        return Double.toString(value);
+    }
+
+    private static final class Timer {
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        private final LongAdder sumNanos = new LongAdder();
+
+        void record(long nanos, int count) {
+            long micros = Math.min(MAX_TRACKABLE_MICROS, Math.max(0, nanos / 1000));
+            histogram.recordValueWithCount(micros, count);
+            sumNanos.add(Math.max(0, nanos) * count);
+        }
+
+        void write(StringBuilder out, String labels, String stage) {
+            String prefix = labels.isEmpty() ? "{" : "{" + labels + ",";
+            Histogram snapshot = histogram.copy();
+            for (double q : QUANTILES) {
+                out.append("stage_latency_seconds").append(prefix).append("stage=\"").append(stage)
+                        .append("\",quantile=\"").append(q).append("\"} ")
+                        .append(format(snapshot.getValueAtPercentile(q * 100) / 1e6)).append('\n');
+            }
+            out.append("stage_latency_seconds_sum").append(prefix).append("stage=\"").append(stage).append("\"} ")
+                    .append(format(sumNanos.sum() / 1e9)).append('\n');
+            out.append("stage_latency_seconds_count").append(prefix).append("stage=\"").append(stage).append("\"} ")
+                    .append(snapshot.getTotalCount()).append('\n');
+        }
+    }
+}
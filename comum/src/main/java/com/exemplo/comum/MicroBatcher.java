@@ -0,0 +1,117 @@
+package com.exemplo.comum;
+
+import com.rabbitmq.client.Delivery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acumula entregas do RabbitMQ e as libera em lotes de até {@code maxSize}
+ * mensagens ou após {@code maxWaitMs} desde a primeira entrega do lote.
+ * As entregas são processadas em uma única thread, na ordem de chegada,
+ * para que o ack múltiplo do último delivery tag seja seguro. Com um
+ * {@code order}, cada lote é montado com as entregas pendentes de menor
+ * ordem (ex.: {@link Deadlines#EARLIEST_FIRST}); nesse caso o ack múltiplo
+ * não é seguro e cada entrega deve ser confirmada individualmente.
+ */
+public class MicroBatcher {
+    public interface BatchHandler {
+        void handle(List<Delivery> batch);
+    }
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final int maxSize;
+    private final long maxWaitMs;
+    private final Comparator<Delivery> order;
+    private final BatchHandler handler;
+    private final BlockingQueue<Delivery> pending;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean draining;
+
+    public MicroBatcher(String name, int maxSize, long maxWaitMs, BatchHandler handler) {
+        this(name, maxSize, maxWaitMs, null, handler);
+    }
+
+    public MicroBatcher(String name, int maxSize, long maxWaitMs, Comparator<Delivery> order, BatchHandler handler) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize deve ser >= 1");
+        this.maxSize = maxSize;
+        this.order = order;
+        this.pending = order == null ? new LinkedBlockingQueue<>() : new PriorityBlockingQueue<>(maxSize * 2, order);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.handler = handler;
+        this.worker = new Thread(this::run, name);
+    }
+
+    public void start() { worker.start(); }
+
+    public void submit(Delivery delivery) { pending.add(delivery); }
+
+    /** Entregas aguardando a formação de um lote. */
+    public int pending() { return pending.size(); }
+
+    /** Encerra sem processar o que está na fila; essas entregas ficam sem ack e voltam ao broker. */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Encerramento gracioso: para de esperar lotes completos, processa as entregas já
+     * recebidas e aguarda a thread por até {@code timeoutMs}. Devolve {@code false} se
+     * o prazo acabar antes; nesse caso a thread é interrompida como em {@link #stop}.
+     */
+    public boolean drain(long timeoutMs) {
+        draining = true;
+        running = false;
+        try {
+            worker.join(Math.max(1, timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!worker.isAlive()) return true;
+        worker.interrupt();
+        return false;
+    }
+
+    private void run() {
+        List<Delivery> batch = new ArrayList<>(maxSize);
+        while (running || (draining && !pending.isEmpty())) {
+            try {
+                Delivery first = running ? pending.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS) : pending.poll();
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < maxSize) {
+                    long remaining = running ? deadline - System.nanoTime() : 0;
+                    if (remaining <= 0) {
+                        pending.drainTo(batch, maxSize - batch.size());
+                        break;
+                    }
+                    Delivery next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                // Entregas que chegaram enquanto o lote se formava podem ter prazo mais próximo.
+                if (order != null) batch.sort(order);
+                handler.handle(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Erro no processamento do lote: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
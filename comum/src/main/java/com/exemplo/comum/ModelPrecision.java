@@ -0,0 +1,67 @@
+package com.exemplo.comum;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Locale;
+
+/**
+ * Precisão dos parâmetros e ativações do modelo, escolhida na inicialização por
+ * {@code MODEL_PRECISION}. Em {@code fp16}/{@code bf16} a rede é convertida após a
+ * importação do Keras: cada réplica ocupa metade da memória do {@code fp32}. Em CPU
+ * é só uma economia de memória, com inferência mais lenta (sem BLAS de 16 bits).
+ * O ND4J não tem inferência int8 para redes importadas, então não há modo int8.
+ */
+public enum ModelPrecision {
+    FP32(DataType.FLOAT),
+    FP16(DataType.FLOAT16),
+    BF16(DataType.BFLOAT16);
+
+    private final DataType dataType;
+
+    ModelPrecision(DataType dataType) {
+        this.dataType = dataType;
+    }
+
+    public DataType dataType() { return dataType; }
+
+    public String label() { return name().toLowerCase(Locale.ROOT); }
+
+    /** Converte a entrada (sempre montada em float) para o tipo da rede. */
+    public INDArray input(INDArray input) {
+        return input.dataType() == dataType ? input : input.castTo(dataType);
+    }
+
+    /** Memória ocupada por {@code numParams} parâmetros nesta precisão. */
+    public long parameterBytes(long numParams) {
+        return numParams * dataType.width();
+    }
+
+    /** {@code MODEL_PRECISION}; avisa quando um modo de 16 bits é escolhido com o backend de CPU. */
+    public static ModelPrecision fromEnv(Env env) {
+        ModelPrecision precision = parse(env.get("MODEL_PRECISION", "fp32"));
+        if (precision != FP32 && Nd4j.getEnvironment().isCPU()) {
+            System.err.printf("Aviso: MODEL_PRECISION=%s em CPU só reduz a memória por réplica; a inferência fica"
+                    + " mais lenta que em fp32, porque o ND4J não tem BLAS otimizado de 16 bits\n", precision.label());
+        }
+        return precision;
+    }
+
+    public static ModelPrecision parse(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "fp32":
+            case "float":
+                return FP32;
+            case "fp16":
+            case "half":
+                return FP16;
+            case "bf16":
+            case "bfloat16":
+                return BF16;
+            default:
+                throw new IllegalArgumentException("Valor inválido para MODEL_PRECISION: " + value
+                        + " (use fp32, fp16 ou bf16)");
+        }
+    }
+}
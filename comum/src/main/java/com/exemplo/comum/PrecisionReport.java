@@ -0,0 +1,51 @@
+package com.exemplo.comum;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tabela do benchmark de precisão: para cada {@link ModelPrecision}, vazão de
+ * inferência, memória dos parâmetros por réplica e concordância com o {@code fp32}
+ * (fração de rótulos iguais e diferença média absoluta da confiança/similaridade).
+ */
+public final class PrecisionReport {
+    private final List<String> rows = new ArrayList<>();
+
+    public void add(ModelPrecision precision, long parameterBytes, long elapsedNanos, int images,
+                    int agreeing, double meanScoreDelta) {
+        rows.add(String.format("%-6s %12.1f %14.1f %12.2f%% %14.5f",
+                precision.label(), images / (elapsedNanos / 1e9), parameterBytes / (1024.0 * 1024.0),
+                100.0 * agreeing / Math.max(1, images), meanScoreDelta));
+    }
+
+    public void print() {
+        System.out.printf("%-6s %12s %14s %13s %14s\n", "modo", "imagens/s", "parâmetros MB", "concordância", "Δ confiança");
+        rows.forEach(System.out::println);
+    }
+
+    /**
+     * Até {@code max} imagens (.jpg/.jpeg/.png) de {@code dir}, em ordem de nome.
+     * Devolve lista vazia se {@code dir} for {@code null}.
+     */
+    public static List<byte[]> loadImages(Path dir, int max) {
+        if (dir == null) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> paths = files
+                    .filter(p -> p.getFileName().toString().toLowerCase().matches(".*\\.(jpe?g|png)$"))
+                    .sorted()
+                    .limit(max)
+                    .collect(Collectors.toList());
+            List<byte[]> images = new ArrayList<>(paths.size());
+            for (Path p : paths) images.add(Files.readAllBytes(p));
+            return images;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
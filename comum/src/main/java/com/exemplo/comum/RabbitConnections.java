@@ -0,0 +1,41 @@
+package com.exemplo.comum;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Conexão com o RabbitMQ a partir de {@code RABBITMQ_HOST/PORT/USER/PASS}, com
+ * recuperação automática (conexão, canais e consumidores), heartbeat e o nome do
+ * cliente, que aparece no painel de gerenciamento.
+ */
+public final class RabbitConnections {
+    private RabbitConnections() {}
+
+    public static Connection connect(String clientName) throws IOException, TimeoutException {
+        Env env = Env.plain();
+        String host = env.get("RABBITMQ_HOST");
+        String user = env.get("RABBITMQ_USER");
+        String pass = env.get("RABBITMQ_PASS");
+
+        if (host == null || user == null || pass == null) {
+            throw new IllegalStateException("Variáveis de ambiente do RabbitMQ não definidas");
+        }
+
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost(host);
+        factory.setPort(env.getInt("RABBITMQ_PORT", ConnectionFactory.DEFAULT_AMQP_PORT));
+        factory.setUsername(user);
+        factory.setPassword(pass);
+        factory.setAutomaticRecoveryEnabled(true);
+        factory.setTopologyRecoveryEnabled(true);
+        factory.setNetworkRecoveryInterval(env.getInt("RABBITMQ_RECOVERY_INTERVAL_MS", 5000));
+        factory.setRequestedHeartbeat(env.getInt("RABBITMQ_HEARTBEAT_S", 30));
+
+        Connection connection = factory.newConnection(clientName);
+        System.out.println("Conectado ao RabbitMQ em " + host);
+        return connection;
+    }
+}
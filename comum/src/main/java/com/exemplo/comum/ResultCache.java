@@ -0,0 +1,198 @@
+package com.exemplo.comum;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Cache LRU de resultados indexado pelo hash do conteúdo da imagem, limitado
+ * por quantidade de entradas e por bytes estimados, com TTL opcional.
+ * Seguro para uso concorrente por várias threads de consumo.
+ * <p>
+ * Cada entrada guarda a geração em que foi calculada. {@link #clear()} e
+ * {@link #invalidate} começam uma nova geração: um resultado calculado antes
+ * (lido na geração anterior, gravado depois) é recusado em {@link #put}, e entradas
+ * de outra geração contam como falta em {@link #get}.
+ */
+public class ResultCache<V> {
+    private static final VarHandle LONGS =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final ToIntFunction<V> weigher;
+    private final LinkedHashMap<Key, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResultCache(int maxEntries, long maxBytes, long ttlMs, ToIntFunction<V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.weigher = weigher;
+    }
+
+    public boolean isEnabled() { return maxEntries > 0 && maxBytes > 0; }
+
+    public static Key keyOf(byte[] content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content, 0, content.length);
+
+        long h = 0x9E3779B97F4A7C15L ^ content.length;
+        int i = 0;
+        for (; i + 8 <= content.length; i += 8) {
+            h = Long.rotateLeft(h ^ mix((long) LONGS.get(content, i)), 27) * 0x9E3779B97F4A7C15L;
+        }
+        long tail = 0;
+        for (int shift = 0; i < content.length; i++, shift += 8) tail |= (content[i] & 0xFFL) << shift;
+        h = mix(h ^ mix(tail));
+        return new Key(h, (int) crc.getValue(), content.length);
+    }
+
+    public V get(Key key) {
+        if (!isEnabled()) return null;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.generation != generation) {
+                remove(key);
+                entry = null;
+            } else if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos) {
+                remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /** Geração atual; leia antes de calcular um resultado que será passado a {@link #put(Key, Object, long)}. */
+    public synchronized long generation() { return generation; }
+
+    public void put(Key key, V value) {
+        put(key, value, generation());
+    }
+
+    /** Guarda {@code value}, calculado na geração {@code generation}; ignora se ela já passou. */
+    public void put(Key key, V value, long generation) {
+        if (!isEnabled()) return;
+        int weight = ENTRY_OVERHEAD + weigher.applyAsInt(value);
+        synchronized (this) {
+            if (generation != this.generation) return;
+            Entry<V> previous = entries.put(key, new Entry<>(value, weight, System.nanoTime(), generation));
+            if (previous != null) bytes -= previous.weight;
+            bytes += weight;
+
+            Iterator<Map.Entry<Key, Entry<V>>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Começa uma nova geração removendo as entradas cujo valor satisfaz {@code filter};
+     * as demais continuam válidas na nova geração. Devolve quantas saíram.
+     */
+    public synchronized int invalidate(Predicate<V> filter) {
+        generation++;
+        int removed = 0;
+        for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry<V> entry = it.next();
+            if (filter.test(entry.value)) {
+                bytes -= entry.weight;
+                it.remove();
+                removed++;
+            } else {
+                entry.generation = generation;
+            }
+        }
+        return removed;
+    }
+
+    /** Remove tudo e começa uma nova geração. */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    public long evictions() { return evictions.sum(); }
+    public synchronized int size() { return entries.size(); }
+    public synchronized long bytes() { return bytes; }
+
+    public synchronized String stats() {
+        long h = hits(), m = misses();
+        return String.format("cache: %d entradas, %d KB, hits %d, misses %d (%.1f%% acerto), evicções %d",
+                entries.size(), bytes / 1024, h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m), evictions());
+    }
+
+    private void remove(Key key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) bytes -= removed.weight;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /** Identidade do conteúdo: hash de 64 bits, CRC32C e tamanho. */
+    public static final class Key {
+        private final long hash;
+        private final int crc;
+        private final int length;
+
+        Key(long hash, int crc, int length) {
+            this.hash = hash;
+            this.crc = crc;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && crc == other.crc && length == other.length;
+        }
+
+        @Override
+        public int hashCode() { return Long.hashCode(hash); }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final int weight;
+        final long createdAt;
+        long generation;
+
+        Entry(V value, int weight, long createdAt, long generation) {
+            this.value = value;
+            this.weight = weight;
+            this.createdAt = createdAt;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/** Resultado de uma análise publicado na exchange de resultados (uma linha JSON por resultado). */
+public class ResultMessage {
+    @JsonProperty("id") private String id;
+    @JsonProperty("tipo") private String type;
+    @JsonProperty("nomeArquivo") private String fileName;
+    @JsonProperty("rotulo") private String label;
+    @JsonProperty("confianca") private double confidence;
+    @JsonProperty("timestamp") private long timestamp;
+    @JsonProperty("processadoEm") private long processedAt;
+    @JsonProperty("temposUs") private Map<String, Long> stageMicros;
+
+    public ResultMessage() {}
+
+    public ResultMessage(ImageMessage msg, String type, String label, double confidence,
+                         long processedAt, Map<String, Long> stageMicros) {
+        this.id = msg.getId();
+        this.type = type;
+        this.fileName = msg.getFileName();
+        this.label = label;
+        this.confidence = confidence;
+        this.timestamp = msg.getTimestamp();
+        this.processedAt = processedAt;
+        this.stageMicros = stageMicros;
+    }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public String getFileName() { return fileName; }
+    public String getLabel() { return label; }
+    public double getConfidence() { return confidence; }
+    public long getTimestamp() { return timestamp; }
+    public long getProcessedAt() { return processedAt; }
+    public Map<String, Long> getStageMicros() { return stageMicros; }
+}
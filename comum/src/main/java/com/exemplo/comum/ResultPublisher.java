@@ -0,0 +1,120 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.MessageProperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica resultados em lotes a partir de uma thread e um canal próprios: os workers
+ * só enfileiram ({@link #offer}, sem bloquear) e cada mensagem AMQP leva até
+ * {@code batchSize} resultados em JSON Lines. A confirmação do broker é aguardada
+ * nesta thread, fora do caminho das mensagens. Se a fila encher, o resultado é
+ * descartado e contado em {@code results_dropped}.
+ */
+public class ResultPublisher {
+    static final String CONTENT_TYPE_NDJSON = "application/x-ndjson";
+
+    private final Channel channel;
+    private final String exchange;
+    private final String routingKey;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long lingerMs;
+    private final Metrics metrics;
+    private final BlockingQueue<ResultMessage> pending;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public ResultPublisher(Connection connection, String exchange, String routingKey, ObjectMapper objectMapper,
+                           int batchSize, long lingerMs, int capacity, Metrics metrics) throws IOException {
+        this.channel = connection.createChannel();
+        this.channel.confirmSelect();
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerMs = Math.max(0, lingerMs);
+        this.metrics = metrics;
+        this.pending = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.worker = new Thread(this::run, "result-publisher-" + routingKey);
+        this.worker.setDaemon(true);
+        this.worker.start();
+        metrics.describe("results_published", "Resultados publicados na exchange de resultados");
+        metrics.describe("results_dropped", "Resultados descartados por fila de publicação cheia");
+        metrics.gauge("results_pending", "Resultados aguardando publicação", pending::size);
+    }
+
+    public void offer(ResultMessage result) {
+        if (!pending.offer(result)) metrics.increment("results_dropped");
+    }
+
+    /** Publica o que já estiver na fila e encerra a thread. */
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try { if (channel.isOpen()) channel.close(); } catch (Exception ignored) {}
+    }
+
+    private void run() {
+        List<ResultMessage> batch = new ArrayList<>(batchSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                if (running) {
+                    batch.add(pending.take());
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                    while (batch.size() < batchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        ResultMessage next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+                        if (next == null) break;
+                        batch.add(next);
+                    }
+                } else {
+                    pending.drainTo(batch, batchSize);
+                }
+            } catch (InterruptedException e) {
+                pending.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) publish(batch);
+            batch.clear();
+        }
+    }
+
+    private void publish(List<ResultMessage> batch) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(batch.size() * 256);
+            for (ResultMessage result : batch) {
+                objectMapper.writeValue(body, result);
+                body.write('\n');
+            }
+            AMQP.BasicProperties props = MessageProperties.PERSISTENT_BASIC.builder()
+                    .contentType(CONTENT_TYPE_NDJSON)
+                    .build();
+            channel.basicPublish(exchange, routingKey, props, body.toByteArray());
+            if (!channel.waitForConfirms(TimeUnit.SECONDS.toMillis(5))) {
+                System.err.println("Lote de " + batch.size() + " resultados recusado pelo broker");
+                metrics.add("results_dropped", batch.size());
+                return;
+            }
+            metrics.add("results_published", batch.size());
+        } catch (Exception e) {
+            // Inclui a interrupção do close(): o laço de run() já controla o encerramento.
+            System.err.println("Erro ao publicar resultados: " + e.getMessage());
+            metrics.add("results_dropped", batch.size());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.exemplo.comum;
+
+/**
+ * Decide o tamanho do pool de workers e o prefetch a partir de uma amostra da fila.
+ * Não acessa o broker nem o relógio: a mesma amostra leva sempre à mesma decisão.
+ * <p>
+ * Cresce quando o backlog levaria mais que {@code targetDrainSeconds} para ser
+ * drenado no ritmo atual e os workers já estão ocupados: primeiro um worker, e no
+ * máximo de workers dobra o prefetch. Encolhe (prefetch antes, depois workers)
+ * quando a fila está vazia e a ocupação fica abaixo de {@code idleUtilization}
+ * por {@code idleSamples} amostras seguidas. Após qualquer mudança espera
+ * {@code cooldownMs} antes de decidir de novo.
+ */
+public final class ScalingPolicy {
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int minPrefetch;
+    private final int maxPrefetch;
+    private final double targetDrainSeconds;
+    private final double busyUtilization;
+    private final double idleUtilization;
+    private final int idleSamples;
+    private final long cooldownMs;
+
+    private long lastChangeMs = Long.MIN_VALUE;
+    private int idleStreak;
+
+    public ScalingPolicy(int minWorkers, int maxWorkers, int minPrefetch, int maxPrefetch, double targetDrainSeconds,
+                         double busyUtilization, double idleUtilization, int idleSamples, long cooldownMs) {
+        this.minWorkers = Math.max(1, minWorkers);
+        this.maxWorkers = Math.max(this.minWorkers, maxWorkers);
+        this.minPrefetch = Math.max(1, minPrefetch);
+        this.maxPrefetch = Math.max(this.minPrefetch, maxPrefetch);
+        this.targetDrainSeconds = targetDrainSeconds;
+        this.busyUtilization = busyUtilization;
+        this.idleUtilization = idleUtilization;
+        this.idleSamples = Math.max(1, idleSamples);
+        this.cooldownMs = cooldownMs;
+    }
+
+    /**
+     * Limites a partir de {@code MIN_WORKERS}/{@code MAX_WORKERS} (1 / {@code cores}),
+     * {@code MIN_PREFETCH}/{@code MAX_PREFETCH} ({@code batchSize} / 4 x {@code batchSize}),
+     * {@code SCALE_TARGET_DRAIN_S} (10), {@code SCALE_BUSY_UTILIZATION} (0.8),
+     * {@code SCALE_IDLE_UTILIZATION} (0.3), {@code SCALE_IDLE_SAMPLES} (3) e {@code SCALE_COOLDOWN_S} (30).
+     */
+    public static ScalingPolicy fromEnv(Env env, int cores, int batchSize) {
+        return new ScalingPolicy(
+                env.getInt("MIN_WORKERS", 1),
+                env.getInt("MAX_WORKERS", cores),
+                env.getInt("MIN_PREFETCH", batchSize),
+                env.getInt("MAX_PREFETCH", batchSize * 4),
+                env.getDouble("SCALE_TARGET_DRAIN_S", 10),
+                env.getDouble("SCALE_BUSY_UTILIZATION", 0.8),
+                env.getDouble("SCALE_IDLE_UTILIZATION", 0.3),
+                env.getInt("SCALE_IDLE_SAMPLES", 3),
+                env.getInt("SCALE_COOLDOWN_S", 30) * 1000L);
+    }
+
+    public int clampWorkers(int workers) { return Math.min(maxWorkers, Math.max(minWorkers, workers)); }
+
+    public int clampPrefetch(int prefetch) { return Math.min(maxPrefetch, Math.max(minPrefetch, prefetch)); }
+
+    public Decision decide(Sample s) {
+        double utilization = s.inFlight / (double) Math.max(1, s.workers * s.prefetch);
+        double drainSeconds = s.settleRate > 0 ? s.queueDepth / s.settleRate
+                : s.queueDepth > 0 ? Double.POSITIVE_INFINITY : 0;
+        String state = String.format("fila %d, %.1f msg/s, drenagem %s, ocupação %.0f%%",
+                s.queueDepth, s.settleRate, Double.isInfinite(drainSeconds) ? "sem progresso"
+                        : String.format("%.1f s", drainSeconds), utilization * 100);
+
+        boolean idle = s.queueDepth == 0 && utilization < idleUtilization;
+        idleStreak = idle ? idleStreak + 1 : 0;
+        if (lastChangeMs != Long.MIN_VALUE && s.timeMs - lastChangeMs < cooldownMs) {
+            return hold(s, state + ", aguardando intervalo mínimo entre mudanças");
+        }
+
+        if (drainSeconds > targetDrainSeconds && utilization >= busyUtilization) {
+            if (s.workers < maxWorkers) {
+                return change(s, s.workers + 1, s.prefetch, state + String.format(" > alvo de %.0f s: +1 worker", targetDrainSeconds));
+            }
+            if (s.prefetch < maxPrefetch) {
+                return change(s, s.workers, clampPrefetch(s.prefetch * 2),
+                        state + String.format(" > alvo de %.0f s, workers no máximo: prefetch maior", targetDrainSeconds));
+            }
+            return hold(s, state + ", workers e prefetch no máximo");
+        }
+        if (idleStreak >= idleSamples) {
+            if (s.prefetch > minPrefetch) {
+                return change(s, s.workers, clampPrefetch(s.prefetch / 2), state + ", ociosa: prefetch menor");
+            }
+            if (s.workers > minWorkers) {
+                return change(s, s.workers - 1, s.prefetch, state + ", ociosa: -1 worker");
+            }
+        }
+        return hold(s, state);
+    }
+
+    private Decision change(Sample s, int workers, int prefetch, String reason) {
+        lastChangeMs = s.timeMs;
+        idleStreak = 0;
+        return new Decision(workers, prefetch, reason);
+    }
+
+    private static Decision hold(Sample s, String reason) {
+        return new Decision(s.workers, s.prefetch, reason);
+    }
+
+    /** Estado observado: profundidade da fila, entregas concluídas por segundo e ocupação dos workers. */
+    public static final class Sample {
+        final long timeMs;
+        final long queueDepth;
+        final double settleRate;
+        final long inFlight;
+        final int workers;
+        final int prefetch;
+
+        public Sample(long timeMs, long queueDepth, double settleRate, long inFlight, int workers, int prefetch) {
+            this.timeMs = timeMs;
+            this.queueDepth = queueDepth;
+            this.settleRate = settleRate;
+            this.inFlight = inFlight;
+            this.workers = workers;
+            this.prefetch = prefetch;
+        }
+    }
+
+    public static final class Decision {
+        private final int workers;
+        private final int prefetch;
+        private final String reason;
+
+        Decision(int workers, int prefetch, String reason) {
+            this.workers = workers;
+            this.prefetch = prefetch;
+            this.reason = reason;
+        }
+
+        public int workers() { return workers; }
+        public int prefetch() { return prefetch; }
+        public String reason() { return reason; }
+    }
+}
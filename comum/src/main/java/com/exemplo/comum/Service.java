@@ -0,0 +1,22 @@
+package com.exemplo.comum;
+
+import com.rabbitmq.client.Connection;
+
+import java.io.IOException;
+
+/**
+ * Serviço de consumo executado por {@link ServiceRunner}. Vários serviços podem
+ * dividir a mesma JVM e a mesma conexão, cada um com seus canais.
+ */
+public interface Service {
+    String name();
+
+    /** Declara filas e exchanges e começa a consumir. */
+    void start(Connection connection) throws IOException;
+
+    /**
+     * Encerramento gracioso: para de receber entregas, conclui os lotes já recebidos
+     * e libera canais e threads. Pode ser chamado mesmo se {@link #start} falhou.
+     */
+    void close();
+}
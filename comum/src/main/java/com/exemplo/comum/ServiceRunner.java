@@ -0,0 +1,45 @@
+package com.exemplo.comum;
+
+import com.rabbitmq.client.Connection;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ciclo de vida de um processo de consumo: conecta, sobe o endpoint de métricas,
+ * inicia os serviços e bloqueia até o encerramento da JVM. No SIGTERM, os serviços
+ * são fechados em ordem inversa (cada um drena seus lotes), depois as métricas e,
+ * por último, a conexão.
+ */
+public final class ServiceRunner {
+    private ServiceRunner() {}
+
+    public static void run(String clientName, List<? extends Service> services) {
+        AtomicReference<Connection> connection = new AtomicReference<>();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (int i = services.size() - 1; i >= 0; i--) {
+                try {
+                    services.get(i).close();
+                } catch (Exception e) {
+                    System.err.println("Erro ao encerrar " + services.get(i).name() + ": " + e.getMessage());
+                }
+            }
+            Metrics.global().stop();
+            Connection current = connection.get();
+            try { if (current != null && current.isOpen()) current.close(); } catch (Exception ignored) {}
+            stopped.countDown();
+        }, "shutdown"));
+
+        try {
+            connection.set(RabbitConnections.connect(clientName));
+            Metrics.global().serve(Env.plain().getInt("METRICS_PORT", 8000));
+            for (Service service : services) service.start(connection.get());
+            stopped.await();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.exemplo.comum;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Durações das etapas de um lote, em microssegundos, na ordem em que ocorreram.
+ * Criado e preenchido pela thread que processa o lote (a da {@code InferenceStage},
+ * ou a do micro-batcher com {@code PIPELINE_DEPTH} = 0), sem sincronização. O pool de
+ * decodificação não escreve aqui: soma seu tempo no {@link DecodeStage.Batch}, cujos
+ * campos finais chegam a essa thread pela conclusão do {@code CompletableFuture}, e
+ * {@link DecodeStage.Batch#complete} o repassa.
+ */
+public final class StageTimings {
+    private final Map<String, Long> micros = new LinkedHashMap<>();
+
+    public void add(String stage, long nanos) {
+        micros.merge(stage, nanos / 1000, Long::sum);
+    }
+
+    public Map<String, Long> asMap() {
+        return micros;
+    }
+}
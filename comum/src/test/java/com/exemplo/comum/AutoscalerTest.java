@@ -0,0 +1,232 @@
+package com.exemplo.comum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Autoscaler#tick} com fila simulada, runtime falso e relógio controlado:
+ * cada teste avança o tempo, ajusta a fila e a vazão e confere as mudanças pedidas.
+ * Limites: 1 a 3 workers, prefetch de 8 a 32, alvo de drenagem de 10 s, 2 amostras
+ * ociosas e 30 s entre mudanças.
+ */
+class AutoscalerTest {
+    private static final long COOLDOWN_MS = 30_000;
+
+    private final FakeQueue queue = new FakeQueue();
+    private final FakeTarget target = new FakeTarget();
+    private ScalingPolicy policy;
+    private Autoscaler autoscaler;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        policy = new ScalingPolicy(1, 3, 8, 32, 10, 0.8, 0.3, 2, COOLDOWN_MS);
+        autoscaler = new Autoscaler("teste", policy, queue, target, Metrics.forService("autoscaler-teste"));
+    }
+
+    @Test
+    void backlogAddsWorkersThenRaisesPrefetchUpToTheMaximum() throws IOException {
+        target.set(1, 8);
+        queue.depth = 10_000;
+
+        ScalingPolicy.Decision decision = busyTick(1_000, 100);
+        assertEquals(2, decision.workers());
+        assertEquals(8, decision.prefetch());
+
+        busyTick(COOLDOWN_MS, 100);
+        assertEquals(3, target.workers);
+
+        busyTick(COOLDOWN_MS, 100);
+        assertEquals(3, target.workers);
+        assertEquals(16, target.prefetch);
+
+        busyTick(COOLDOWN_MS, 100);
+        assertEquals(32, target.prefetch);
+
+        decision = busyTick(COOLDOWN_MS, 100);
+        assertEquals(3, decision.workers());
+        assertEquals(32, decision.prefetch());
+        assertTrue(decision.reason().contains("no máximo"), decision.reason());
+        assertEquals(List.of("2/8", "3/8", "3/16", "3/32"), target.resizes);
+    }
+
+    @Test
+    void backlogWithoutProgressScalesUp() throws IOException {
+        target.set(1, 8);
+        queue.depth = 50;
+
+        busyTick(1_000, 0);
+        assertEquals(2, target.workers);
+    }
+
+    @Test
+    void backlogThatDrainsWithinTargetHolds() throws IOException {
+        target.set(1, 8);
+        queue.depth = 500;
+
+        // 500 mensagens a 100 msg/s: 5 s de drenagem, abaixo do alvo de 10 s.
+        busyTick(1_000, 100);
+        assertTrue(target.resizes.isEmpty());
+    }
+
+    @Test
+    void idleWorkersAreNotAddedEvenWithBacklog() throws IOException {
+        target.set(1, 8);
+        queue.depth = 10_000;
+        target.inFlight = 2;
+
+        tick(1_000, 100);
+        assertTrue(target.resizes.isEmpty());
+    }
+
+    @Test
+    void idleQueueLowersPrefetchThenRemovesWorkersDownToTheMinimum() throws IOException {
+        target.set(3, 32);
+        queue.depth = 0;
+
+        tick(1_000, 0);
+        assertTrue(target.resizes.isEmpty(), "uma amostra ociosa não basta");
+        tick(1_000, 0);
+        assertEquals(16, target.prefetch);
+
+        for (int i = 0; i < 10; i++) tick(COOLDOWN_MS, 0);
+
+        assertEquals(1, target.workers);
+        assertEquals(8, target.prefetch);
+        assertEquals(List.of("3/16", "3/8", "2/8", "1/8"), target.resizes);
+    }
+
+    @Test
+    void busySampleResetsTheIdleStreak() throws IOException {
+        target.set(2, 8);
+        queue.depth = 0;
+
+        tick(1_000, 0);
+        queue.depth = 5;
+        target.inFlight = target.workers * target.prefetch;
+        tick(1_000, 100);
+        queue.depth = 0;
+        target.inFlight = 0;
+        tick(1_000, 0);
+        assertTrue(target.resizes.isEmpty());
+
+        tick(1_000, 0);
+        assertEquals(1, target.workers);
+    }
+
+    @Test
+    void cooldownHoldsUntilTheIntervalHasPassed() throws IOException {
+        target.set(1, 8);
+        queue.depth = 10_000;
+
+        busyTick(1_000, 100);
+        assertEquals(2, target.workers);
+
+        ScalingPolicy.Decision decision = busyTick(COOLDOWN_MS - 1, 100);
+        assertEquals(2, decision.workers());
+        assertTrue(decision.reason().contains("aguardando"), decision.reason());
+
+        busyTick(1, 100);
+        assertEquals(3, target.workers);
+    }
+
+    @Test
+    void cooldownAlsoDelaysScaleDownAfterScaleUp() throws IOException {
+        target.set(1, 8);
+        queue.depth = 10_000;
+        busyTick(1_000, 100);
+
+        queue.depth = 0;
+        target.inFlight = 0;
+        for (int i = 0; i < 5; i++) tick(1_000, 0);
+        assertEquals(List.of("2/8"), target.resizes);
+
+        tick(COOLDOWN_MS, 0);
+        assertEquals(1, target.workers);
+    }
+
+    @Test
+    void limitsAreClampedAndNeverExceeded() throws IOException {
+        assertEquals(1, policy.clampWorkers(0));
+        assertEquals(3, policy.clampWorkers(10));
+        assertEquals(8, policy.clampPrefetch(1));
+        assertEquals(32, policy.clampPrefetch(100));
+
+        ScalingPolicy inverted = new ScalingPolicy(4, 2, 16, 8, 10, 0.8, 0.3, 2, COOLDOWN_MS);
+        assertEquals(4, inverted.clampWorkers(1));
+        assertEquals(4, inverted.clampWorkers(8));
+        assertEquals(16, inverted.clampPrefetch(64));
+
+        // Dobrar 24 passaria do máximo; reduzir 12 à metade, do mínimo.
+        target.set(3, 24);
+        queue.depth = 10_000;
+        busyTick(1_000, 100);
+        assertEquals(32, target.prefetch);
+
+        target.set(1, 12);
+        queue.depth = 0;
+        target.inFlight = 0;
+        tick(COOLDOWN_MS, 0);
+        tick(1_000, 0);
+        assertEquals(8, target.prefetch);
+        assertEquals(1, target.workers);
+    }
+
+    /** Avança {@code elapsedMs} com os workers ocupados (sem ack pendente além do prefetch). */
+    private ScalingPolicy.Decision busyTick(long elapsedMs, double ratePerSecond) throws IOException {
+        target.inFlight = (long) target.workers * target.prefetch;
+        return tick(elapsedMs, ratePerSecond);
+    }
+
+    /** Avança {@code elapsedMs}, concluindo entregas a {@code ratePerSecond}, e amostra. */
+    private ScalingPolicy.Decision tick(long elapsedMs, double ratePerSecond) throws IOException {
+        now += elapsedMs;
+        target.settled += Math.round(ratePerSecond * elapsedMs / 1000.0);
+        return autoscaler.tick(now);
+    }
+
+    private static final class FakeQueue implements Autoscaler.QueueProbe {
+        long depth;
+
+        @Override
+        public long depth() { return depth; }
+    }
+
+    private static final class FakeTarget implements Autoscaler.Target {
+        final List<String> resizes = new ArrayList<>();
+        int workers;
+        int prefetch;
+        long inFlight;
+        long settled;
+
+        void set(int workers, int prefetch) {
+            this.workers = workers;
+            this.prefetch = prefetch;
+        }
+
+        @Override
+        public int workers() { return workers; }
+
+        @Override
+        public int prefetch() { return prefetch; }
+
+        @Override
+        public long inFlight() { return inFlight; }
+
+        @Override
+        public long settled() { return settled; }
+
+        @Override
+        public void resize(int workers, int prefetch) {
+            resizes.add(workers + "/" + prefetch);
+            set(workers, prefetch);
+        }
+    }
+}
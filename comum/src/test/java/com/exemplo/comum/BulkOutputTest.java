@@ -0,0 +1,112 @@
+package com.exemplo.comum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retomada do processamento em lote: uma execução interrompida depois de um checkpoint
+ * e retomada grava cada imagem da origem exatamente uma vez, na ordem; com a origem
+ * alterada, a retomada é recusada. Origem de 10 imagens, trechos de 3, sem checkpoint por tempo.
+ */
+class BulkOutputTest {
+    private static final int CHUNK = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+    private Path images;
+    private Path output;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        images = Files.createDirectory(dir.resolve("imagens"));
+        for (int i = 0; i < 10; i++) Files.write(images.resolve(String.format("img%02d.png", i)), new byte[]{(byte) i});
+        output = dir.resolve("resultados.jsonl");
+    }
+
+    @Test
+    void interruptedRunResumesWithoutDuplicateOrMissingLines() throws IOException {
+        interruptAfterSixImages();
+
+        try (BulkSource source = BulkSource.open(images, null, objectMapper);
+             BulkOutput out = BulkOutput.open(output, source, objectMapper, Long.MAX_VALUE)) {
+            assertEquals(6, out.position());
+            assertEquals(6, source.position());
+            BulkSource.Chunk chunk;
+            while ((chunk = source.next(CHUNK)) != null) out.complete(chunk, results(chunk));
+            assertEquals(10, out.written());
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) expected.add(String.format("img%02d.png", i));
+        assertEquals(expected, writtenIds());
+    }
+
+    @Test
+    void resumeIsRefusedWhenTheSourceChanged() throws IOException {
+        interruptAfterSixImages();
+        Files.write(images.resolve("img00b.png"), new byte[]{42});
+
+        try (BulkSource source = BulkSource.open(images, null, objectMapper)) {
+            IOException error = assertThrows(IOException.class,
+                    () -> BulkOutput.open(output, source, objectMapper, Long.MAX_VALUE));
+            assertTrue(error.getMessage().contains("mudou"), error.getMessage());
+        }
+    }
+
+    @Test
+    void existingOutputWithoutCheckpointIsRefused() throws IOException {
+        Files.write(output, "{}\n".getBytes(StandardCharsets.UTF_8));
+
+        try (BulkSource source = BulkSource.open(images, null, objectMapper)) {
+            assertThrows(IOException.class, () -> BulkOutput.open(output, source, objectMapper, Long.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Primeira execução: o segundo trecho termina antes do primeiro, o checkpoint fica
+     * na imagem 6, o terceiro trecho nunca termina e o processo morre no meio de uma linha.
+     */
+    private void interruptAfterSixImages() throws IOException {
+        try (BulkSource source = BulkSource.open(images, null, objectMapper);
+             BulkOutput out = BulkOutput.open(output, source, objectMapper, Long.MAX_VALUE)) {
+            BulkSource.Chunk first = source.next(CHUNK);
+            BulkSource.Chunk second = source.next(CHUNK);
+            source.next(CHUNK);
+            assertEquals(0, out.complete(second, results(second)));
+            assertEquals(2, out.complete(first, results(first)));
+        }
+        Path checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+        assertEquals(6, objectMapper.readTree(checkpoint.toFile()).get("posicao").asLong());
+        Files.write(output, "{\"id\":\"img0".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static List<ResultMessage> results(BulkSource.Chunk chunk) throws IOException {
+        List<ResultMessage> results = new ArrayList<>();
+        for (ImageMessage msg : chunk.load()) results.add(new ResultMessage(msg, "face", "feliz", 0.9, 0, null));
+        return results;
+    }
+
+    private List<String> writtenIds() throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+            ids.add(objectMapper.readTree(line).get("id").asText());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,46 @@
+package com.exemplo.comum;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** Gerações do {@link ResultCache}: resultados calculados antes de uma invalidação não entram no cache. */
+class ResultCacheTest {
+    private final ResultCache<String> cache = new ResultCache<>(100, 1 << 20, 0, String::length);
+
+    @Test
+    void putFromAnOlderGenerationIsRejected() {
+        ResultCache.Key key = key("a");
+        long generation = cache.generation();
+        cache.clear();
+
+        cache.put(key, "antigo", generation);
+        assertNull(cache.get(key));
+
+        cache.put(key, "novo", cache.generation());
+        assertEquals("novo", cache.get(key));
+    }
+
+    @Test
+    void invalidateRemovesMatchingEntriesAndKeepsTheRest() {
+        ResultCache.Key a = key("a");
+        ResultCache.Key b = key("b");
+        cache.put(a, "remover");
+        cache.put(b, "manter");
+        long before = cache.generation();
+
+        assertEquals(1, cache.invalidate("remover"::equals));
+
+        assertNull(cache.get(a));
+        assertEquals("manter", cache.get(b));
+        cache.put(a, "calculado antes", before);
+        assertNull(cache.get(a));
+    }
+
+    private static ResultCache.Key key(String content) {
+        return ResultCache.keyOf(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
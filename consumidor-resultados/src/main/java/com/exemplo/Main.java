@@ -0,0 +1,187 @@
+package com.exemplo;
+
+import com.exemplo.comum.Env;
+import com.exemplo.comum.MicroBatcher;
+import com.exemplo.comum.Service;
+import com.exemplo.comum.ServiceRunner;
+import com.rabbitmq.client.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumidor opcional dos resultados publicados pelos analisadores. Cada entrega
+ * traz um lote de resultados em JSON Lines, gravado sem reprocessamento em arquivos
+ * append-only; várias entregas são gravadas juntas com um único fsync (group commit)
+ * e só então confirmadas ao broker com um ack múltiplo.
+ */
+public class Main implements Service {
+
+    private static final String RESULTS_EXCHANGE = "image_results_exchange";
+    private static final String QUEUE_NAME = "results_queue";
+
+    private Channel channel;
+    private MicroBatcher batcher;
+    private String consumerTag;
+    private final ResultStore store;
+    private final int batchMessages;
+    private final long flushMs;
+    private final int prefetch;
+
+    public Main(Env env) throws IOException {
+        this.store = new ResultStore(
+                Paths.get(env.get("SINK_DIR", "/data/resultados")),
+                env.getInt("SINK_MAX_FILE_MB", 64) * 1024L * 1024L);
+        this.batchMessages = env.getInt("SINK_BATCH_MESSAGES", 50);
+        this.flushMs = env.getInt("SINK_FLUSH_MS", 200);
+        this.prefetch = env.getInt("PREFETCH", batchMessages * 2);
+    }
+
+    @Override
+    public String name() { return "resultados"; }
+
+    @Override
+    public void start(Connection connection) throws IOException {
+        channel = connection.createChannel();
+        channel.exchangeDeclare(RESULTS_EXCHANGE, BuiltinExchangeType.TOPIC, true);
+        channel.queueDeclare(QUEUE_NAME, true, false, false, null);
+        channel.queueBind(QUEUE_NAME, RESULTS_EXCHANGE, "result.#");
+        channel.basicQos(prefetch);
+
+        System.out.printf("Gravando em %s: até %d entregas por fsync, espera máxima de %d ms\n",
+                store.directory(), batchMessages, flushMs);
+
+        batcher = new MicroBatcher("result-sink", batchMessages, flushMs, this::writeBatch);
+        batcher.start();
+        DeliverCallback deliverCallback = (consumerTag, delivery) -> batcher.submit(delivery);
+        consumerTag = channel.basicConsume(QUEUE_NAME, false, deliverCallback, tag -> {});
+    }
+
+    private void writeBatch(List<Delivery> batch) {
+        List<byte[]> bodies = new ArrayList<>(batch.size());
+        for (Delivery delivery : batch) bodies.add(delivery.getBody());
+        long lastTag = batch.get(batch.size() - 1).getEnvelope().getDeliveryTag();
+        try {
+            store.append(bodies);
+        } catch (IOException e) {
+            // O append desfaz a escrita parcial; o nack múltiplo devolve o lote à fila. Sem ele,
+            // o ack múltiplo do próximo lote confirmaria também estas entregas, que não foram gravadas.
+            System.err.println("Erro ao gravar resultados, lote devolvido à fila: " + e.getMessage());
+            try {
+                channel.basicNack(lastTag, true, true);
+            } catch (IOException nackError) {
+                System.err.println("Erro ao devolver lote à fila: " + nackError.getMessage());
+            }
+            return;
+        }
+        try {
+            channel.basicAck(lastTag, true);
+        } catch (IOException e) {
+            System.err.println("Erro ao confirmar lote gravado: " + e.getMessage());
+        }
+    }
+
+    /** Grava e confirma o que já foi entregue antes de fechar o canal e o arquivo. */
+    @Override
+    public void close() {
+        try { if (consumerTag != null && channel.isOpen()) channel.basicCancel(consumerTag); } catch (Exception ignored) {}
+        if (batcher != null) batcher.drain(TimeUnit.SECONDS.toMillis(10));
+        try { if (channel != null && channel.isOpen()) channel.close(); } catch (Exception ignored) {}
+        store.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        ServiceRunner.run("consumidor-resultados", List.of(new Main(Env.plain())));
+    }
+
+    /**
+     * Arquivos JSON Lines append-only em {@code directory}. Cada {@link #append} grava
+     * todos os lotes com uma escrita vetorizada e um único {@code force}; ao passar de
+     * {@code maxFileBytes} o arquivo é fechado e um novo é aberto. Arquivos existentes
+     * nunca são reescritos: cada execução começa um arquivo novo. Se a escrita ou o
+     * {@code force} falhar, o arquivo volta ao tamanho anterior ao lote, para que a nova
+     * tentativa não grave linhas duplicadas; se nem isso for possível, o arquivo é
+     * fechado e o próximo lote começa outro.
+     */
+    public static class ResultStore {
+        private final Path directory;
+        private final long maxFileBytes;
+        private final long startedAt = System.currentTimeMillis();
+        private FileChannel current;
+        private Path currentPath;
+        private int sequence;
+        private long lines;
+        private long commits;
+        private long commitNanos;
+
+        public ResultStore(Path directory, long maxFileBytes) throws IOException {
+            this.directory = directory;
+            this.maxFileBytes = Math.max(1, maxFileBytes);
+            Files.createDirectories(directory);
+        }
+
+        public Path directory() { return directory; }
+
+        public synchronized void append(List<byte[]> chunks) throws IOException {
+            if (current == null || current.size() >= maxFileBytes) roll();
+
+            long start = System.nanoTime();
+            long sizeBefore = current.size();
+            ByteBuffer[] buffers = new ByteBuffer[chunks.size()];
+            long remaining = 0;
+            long newLines = 0;
+            for (int i = 0; i < buffers.length; i++) {
+                byte[] chunk = chunks.get(i);
+                buffers[i] = ByteBuffer.wrap(chunk);
+                remaining += chunk.length;
+                for (byte b : chunk) if (b == '\n') newLines++;
+            }
+            try {
+                while (remaining > 0) remaining -= current.write(buffers);
+                current.force(false);
+            } catch (IOException e) {
+                rollback(sizeBefore);
+                throw e;
+            }
+            lines += newLines;
+            commitNanos += System.nanoTime() - start;
+
+            if (++commits % 100 == 0) {
+                System.out.printf("Resultados gravados: %d linhas em %d commits | fsync médio %.2f ms | arquivo %s\n",
+                        lines, commits, commitNanos / 1e6 / commits, currentPath.getFileName());
+            }
+        }
+
+        public synchronized void close() {
+            try { if (current != null) current.close(); } catch (IOException ignored) {}
+            current = null;
+        }
+
+        private void rollback(long size) {
+            try {
+                current.truncate(size);
+                current.force(false);
+            } catch (IOException e) {
+                System.err.printf("Não foi possível desfazer a escrita parcial em %s: %s\n", currentPath, e.getMessage());
+                try { current.close(); } catch (IOException ignored) {}
+                current = null;
+            }
+        }
+
+        private void roll() throws IOException {
+            if (current != null) current.close();
+            currentPath = directory.resolve(String.format("resultados-%d-%05d.jsonl", startedAt, sequence++));
+            current = FileChannel.open(currentPath,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            System.out.println("Novo arquivo de resultados: " + currentPath);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.exemplo.sentimento;
+
+import com.exemplo.comum.BenchmarkSupport;
+import com.exemplo.comum.BulkRunner;
+import com.exemplo.comum.ConsoleLog;
+import com.exemplo.comum.ConsumerRuntime;
+import com.exemplo.comum.DecodeStage;
+import com.exemplo.comum.Env;
+import com.exemplo.comum.ImageBatch;
+import com.exemplo.comum.ImageMessage;
+import com.exemplo.comum.ImagePreprocessor;
+import com.exemplo.comum.InferenceBenchmark;
+import com.exemplo.comum.Metrics;
+import com.exemplo.comum.ModelPrecision;
+import com.exemplo.comum.PrecisionReport;
+import com.exemplo.comum.ResultCache;
+import com.exemplo.comum.ResultMessage;
+import com.exemplo.comum.ResultPublisher;
+import com.exemplo.comum.Service;
+import com.exemplo.comum.ServiceRunner;
+import com.exemplo.comum.StageTimings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.*;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.modelimport.keras.KerasModelImport;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Main implements Service {
+
+    private static final String QUEUE_NAME = "face_queue";
+    private static final String RESULTS_EXCHANGE = "image_results_exchange";
+    private static final String RESULT_ROUTING_KEY = "result.face";
+
+    private final Env env;
+    private Channel channel;
+    private ObjectMapper objectMapper;
+    private SentimentAnalyzer analyzer;
+    private AtomicLong messagesProcessed;
+    private final boolean replicateModel;
+    private final ConsumerRuntime<SentimentAnalyzer> runtime;
+    private final Metrics metrics = Metrics.forService("sentimento");
+    private final ConsoleLog log;
+    private ResultPublisher resultPublisher;
+
+    /**
+     * @param env   configuração; com prefixo {@code SENTIMENTO_} quando divide a JVM com outro analisador
+     * @param cores núcleos destinados a este serviço (para o número de workers e threads do ND4J)
+     */
+    public Main(Env env, int cores) {
+        this.env = env;
+        this.objectMapper = new ObjectMapper();
+        this.analyzer = new SentimentAnalyzer(env.get("MODEL_FILE", "model.h5"),
+                DecodeStage.fromEnv("sentimento", env, cores, metrics), new ResultCache<>(
+                env.getInt("CACHE_MAX_ENTRIES", 10000),
+                env.getInt("CACHE_MAX_BYTES", 16 * 1024 * 1024),
+                env.getInt("CACHE_TTL_MS", 0),
+                result -> 2 * result.getSentiment().length() + 24), metrics)
+                .withPrecision(ModelPrecision.fromEnv(env));
+        this.messagesProcessed = new AtomicLong(0);
+        this.runtime = new ConsumerRuntime<>("sentimento", QUEUE_NAME, env, 16, cores, metrics);
+        this.replicateModel = !env.isDisabled("MODEL_REPLICAS");
+        this.log = new ConsoleLog(env.getInt("LOG_SAMPLE_EVERY", 100));
+    }
+
+    @Override
+    public String name() { return "sentimento"; }
+
+    /**
+     * Cada worker tem seu próprio canal (com prefetch e acks independentes), seu
+     * micro-batcher e, com {@code MODEL_REPLICAS}, sua própria cópia do modelo.
+     */
+    @Override
+    public void start(Connection connection) throws IOException {
+        channel = connection.createChannel();
+        channel.queueDeclare(QUEUE_NAME, true, false, false, runtime.queueArguments());
+        channel.exchangeDeclare(RESULTS_EXCHANGE, BuiltinExchangeType.TOPIC, true);
+        if (!env.isDisabled("RESULTS_ENABLED")) {
+            resultPublisher = new ResultPublisher(connection, RESULTS_EXCHANGE, RESULT_ROUTING_KEY, objectMapper,
+                    env.getInt("RESULT_BATCH_SIZE", 100), env.getInt("RESULT_LINGER_MS", 50),
+                    env.getInt("RESULT_QUEUE_CAPACITY", 10000), metrics);
+        }
+
+        registerMetrics();
+        runtime.start(connection, i -> analyzer.forWorker(replicateModel && i > 0), this::prepareBatch, this::processBatch);
+    }
+
+    /** Gauges do cache e do log; ocupação e latências por etapa ficam com o runtime e o caminho das mensagens. */
+    private void registerMetrics() {
+        metrics.describe("messages_processed", "Mensagens analisadas e confirmadas");
+        metrics.describe("messages_rejected", "Mensagens inválidas rejeitadas sem reenfileirar");
+        metrics.describe("analysis_errors", "Imagens que resultaram em ERRO");
+        metrics.gauge("model_parameter_bytes", "Memória dos parâmetros de cada réplica do modelo",
+                () -> analyzer.parameterBytes());
+        metrics.gauge("cache_hits", "Acertos acumulados do cache de resultados", () -> analyzer.cacheHits());
+        metrics.gauge("cache_misses", "Faltas acumuladas do cache de resultados", () -> analyzer.cacheMisses());
+        metrics.counter("cache_evictions", "Entradas removidas do cache por limite de tamanho, memória ou TTL",
+                () -> analyzer.cacheEvictions());
+        metrics.gauge("cache_entries", "Entradas no cache de resultados", () -> analyzer.cacheEntries());
+        metrics.gauge("cache_bytes", "Memória estimada das entradas do cache de resultados", () -> analyzer.cacheBytes());
+        metrics.gauge("console_log_dropped", "Linhas de log descartadas por fila cheia", () -> log.dropped());
+    }
+
+    /** Etapa de preparação: lê as mensagens e decodifica as imagens no pool de decodificação. */
+    private CompletableFuture<ImageBatch<SentimentAnalyzer.Result>> prepareBatch(List<Delivery> batch) {
+        return ImageBatch.prepare(batch, objectMapper, analyzer::decodeAsync);
+    }
+
+    private void processBatch(Channel channel, SentimentAnalyzer analyzer, ImageBatch<SentimentAnalyzer.Result> batch) {
+        List<ImageMessage> messages = batch.messages();
+        List<Long> tags = batch.tags();
+        long lastTag = tags.stream().mapToLong(Long::longValue).max().orElse(-1);
+        long now = batch.preparedAt();
+        int acked = 0;
+
+        try {
+            for (long tag : batch.invalidTags()) {
+                channel.basicNack(tag, false, false);
+                metrics.increment("messages_rejected");
+            }
+            for (ImageMessage msg : messages) {
+                if (msg.getTimestamp() > 0) {
+                    metrics.record("queue_wait", TimeUnit.MILLISECONDS.toNanos(now - msg.getTimestamp()));
+                }
+            }
+
+            StageTimings timings = new StageTimings();
+            List<SentimentAnalyzer.Result> results = analyzer.complete(batch.images(), timings);
+            long processedAt = System.currentTimeMillis();
+            for (int i = 0; i < results.size(); i++) {
+                SentimentAnalyzer.Result result = results.get(i);
+                long count = messagesProcessed.incrementAndGet();
+                if (resultPublisher != null) {
+                    ImageMessage msg = messages.get(i);
+                    Map<String, Long> stageMicros = new LinkedHashMap<>();
+                    if (msg.getTimestamp() > 0) stageMicros.put("queue_wait", (now - msg.getTimestamp()) * 1000);
+                    stageMicros.putAll(timings.asMap());
+                    resultPublisher.offer(new ResultMessage(msg, "face", result.getSentiment(),
+                            result.getConfidence(), processedAt, stageMicros));
+                }
+                if (result.getSentiment().equals("ERRO")) metrics.increment("analysis_errors");
+                if (log.sample()) {
+                    log.printf("[%s] Sentimento: %s | Confiança: %.2f%% | Total processadas: %d\n",
+                            messages.get(i).getFileName(), result.getSentiment(), result.getConfidence() * 100, count);
+                }
+                if (count % 100 == 0) {
+                    log.printf("Pré-processamento médio: %.1f µs/mensagem | %s\n",
+                            analyzer.averagePreprocessMicros(), analyzer.cacheStats());
+                }
+            }
+
+            if (!messages.isEmpty()) {
+                long ackStart = System.nanoTime();
+                if (runtime.deadlineOrder()) {
+                    // Fora da ordem dos tags, o ack múltiplo confirmaria entregas ainda no micro-batcher.
+                    // acked avança a cada ack, para que uma falha no meio só devolva as restantes.
+                    for (long tag : tags) {
+                        channel.basicAck(tag, false);
+                        acked++;
+                    }
+                } else {
+                    channel.basicAck(lastTag, true);
+                    acked = tags.size();
+                }
+                metrics.recordSince("ack", ackStart, messages.size());
+                metrics.add("messages_processed", messages.size());
+                long done = System.currentTimeMillis();
+                for (ImageMessage msg : messages) {
+                    if (msg.getTimestamp() > 0) {
+                        metrics.record("end_to_end", TimeUnit.MILLISECONDS.toNanos(done - msg.getTimestamp()));
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            System.err.println("Erro ao processar lote: " + e.getMessage());
+            e.printStackTrace();
+            runtime.requeue(channel, tags.subList(acked, tags.size()), e);
+        }
+    }
+
+    /**
+     * Processa um diretório de imagens ou um log de mensagens sem o broker, com os mesmos
+     * workers, réplicas e pipeline do consumo, gravando os resultados em {@code output}
+     * (JSON Lines) com checkpoint. Rodar de novo com a mesma saída retoma de onde parou.
+     */
+    public void runBulk(Path source, Path output) throws IOException {
+        BulkRunner<SentimentAnalyzer> bulk = new BulkRunner<>("sentimento", "face", env, runtime.batchSize(),
+                runtime.workers(), objectMapper);
+        try {
+            bulk.run(source, output, i -> analyzer.forWorker(replicateModel && i > 0),
+                    (replica, messages) -> ImageBatch.of(messages, replica::decodeAsync), this::analyzeBulk);
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+
+    private List<ResultMessage> analyzeBulk(SentimentAnalyzer analyzer, ImageBatch<SentimentAnalyzer.Result> batch) {
+        StageTimings timings = new StageTimings();
+        List<SentimentAnalyzer.Result> results = analyzer.complete(batch.images(), timings);
+        long processedAt = System.currentTimeMillis();
+        List<ResultMessage> out = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            SentimentAnalyzer.Result result = results.get(i);
+            out.add(new ResultMessage(batch.messages().get(i), "face", result.getSentiment(), result.getConfidence(),
+                    processedAt, timings.asMap()));
+        }
+        metrics.add("messages_processed", out.size());
+        return out;
+    }
+
+    /** Para de consumir, conclui os lotes já recebidos e publica os resultados pendentes. */
+    @Override
+    public void close() {
+        runtime.close();
+        if (resultPublisher != null) resultPublisher.close();
+        analyzer.shutdown();
+        try { if (channel != null && channel.isOpen()) channel.close(); } catch (Exception ignored) {}
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 2 && args[0].equals("--bulk")) {
+            try {
+                new Main(Env.plain(), Runtime.getRuntime().availableProcessors())
+                        .runBulk(Paths.get(args[1]), Paths.get(args[2]));
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--benchmark-workers")) {
+            WorkerBenchmark.run(
+                    args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors(),
+                    args.length > 2 ? Integer.parseInt(args[2]) : 10,
+                    Env.plain().getInt("BATCH_SIZE", 16));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--benchmark-precision")) {
+            PrecisionBenchmark.run(
+                    args.length > 1 ? Integer.parseInt(args[1]) : 256,
+                    args.length > 2 ? Integer.parseInt(args[2]) : Env.plain().getInt("BATCH_SIZE", 16),
+                    args.length > 3 ? Paths.get(args[3]) : null);
+            return;
+        }
+
+        ServiceRunner.run("consumidor-sentimento",
+                List.of(new Main(Env.plain(), Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Mede a vazão de inferência (sem broker) com 1, 2, 4... workers, cada um com
+     * sua réplica do modelo, usando imagens sintéticas distintas e cache desativado.
+     * Uso: {@code java -jar face-consumer.jar --benchmark-workers [maxWorkers] [segundos]}
+     */
+    public static class WorkerBenchmark {
+        public static void run(int maxWorkers, int seconds, int batchSize) {
+            SentimentAnalyzer base = new SentimentAnalyzer(new ResultCache<>(0, 0, 0, r -> 0));
+            InferenceBenchmark.workers(maxWorkers, seconds, batchSize, BenchmarkSupport.syntheticImages(256, 96),
+                    i -> base.forWorker(i > 0));
+        }
+    }
+
+    /**
+     * Compara os modos de {@link ModelPrecision} com o {@code fp32} nas mesmas imagens:
+     * vazão, memória dos parâmetros e concordância da classe e da confiança.
+     * Sem diretório, usa imagens sintéticas (a concordância então só indica a estabilidade numérica).
+     * Uso: {@code java -jar face-consumer.jar --benchmark-precision [imagens] [lote] [diretorio]}
+     */
+    public static class PrecisionBenchmark {
+        public static void run(int count, int batchSize, Path imagesDir) {
+            SentimentAnalyzer base = new SentimentAnalyzer(new ResultCache<>(0, 0, 0, r -> 0));
+            List<byte[]> images = PrecisionReport.loadImages(imagesDir, count);
+            if (images.isEmpty()) images = BenchmarkSupport.syntheticImages(count, 96);
+            // Confiança comparada na mesma classe: P(feliz) de cada modo.
+            InferenceBenchmark.precision(images, batchSize, base::withPrecision,
+                    SentimentAnalyzer.Result::getSentiment, PrecisionBenchmark::happiness);
+        }
+
+        private static double happiness(SentimentAnalyzer.Result result) {
+            return "feliz".equals(result.getSentiment()) ? result.getConfidence() : 1 - result.getConfidence();
+        }
+    }
+
+    public static class SentimentAnalyzer implements InferenceBenchmark.Model<SentimentAnalyzer.Result> {
+        private static final int SIZE = 48;
+        private static final String[] CLASSES = {"feliz", "triste"};
+
+        private final MultiLayerNetwork model;
+        private final ModelPrecision precision;
+        private final Object modelLock;
+        private final ImagePreprocessor preprocessor;
+        private final AtomicLong preprocessNanos;
+        private final AtomicLong preprocessCount;
+        private final ResultCache<Result> cache;
+        private final DecodeStage decoder;
+        private final Metrics metrics;
+
+        public SentimentAnalyzer(ResultCache<Result> cache) {
+            this("model.h5", cache, Metrics.global());
+        }
+
+        public SentimentAnalyzer(String modelFile, ResultCache<Result> cache, Metrics metrics) {
+            this(modelFile, new DecodeStage("decode-sentimento", Runtime.getRuntime().availableProcessors(), false, metrics),
+                    cache, metrics);
+        }
+
+        public SentimentAnalyzer(String modelFile, DecodeStage decoder, ResultCache<Result> cache, Metrics metrics) {
+            this.cache = cache;
+            this.decoder = decoder;
+            this.metrics = metrics;
+            this.modelLock = new Object();
+            this.precision = ModelPrecision.FP32;
+            this.preprocessor = new ImagePreprocessor(SIZE, SIZE, 1);
+            this.preprocessNanos = new AtomicLong();
+            this.preprocessCount = new AtomicLong();
+            try {
+                model = KerasModelImport.importKerasSequentialModelAndWeights(modelFile);
+                System.out.println("Modelo Keras carregado com sucesso!");
+            } catch (Exception e) {
+                throw new RuntimeException("Erro ao carregar modelo Keras", e);
+            }
+        }
+
+        private SentimentAnalyzer(SentimentAnalyzer base, MultiLayerNetwork model, ModelPrecision precision) {
+            this.model = model;
+            this.precision = precision;
+            this.modelLock = model == base.model ? base.modelLock : new Object();
+            this.cache = base.cache;
+            this.decoder = base.decoder;
+            this.metrics = base.metrics;
+            this.preprocessor = base.preprocessor;
+            this.preprocessNanos = base.preprocessNanos;
+            this.preprocessCount = base.preprocessCount;
+        }
+
+        /**
+         * Analisador para um worker: compartilha cache e métricas e usa uma cópia
+         * própria do modelo ({@code replicate}) ou o mesmo modelo, serializado por lock.
+         */
+        public SentimentAnalyzer forWorker(boolean replicate) {
+            return new SentimentAnalyzer(this, replicate ? model.clone() : model, precision);
+        }
+
+        /**
+         * Analisador com o modelo convertido para {@code target}, compartilhando cache e
+         * métricas. As réplicas criadas a partir dele herdam a precisão.
+         */
+        public SentimentAnalyzer withPrecision(ModelPrecision target) {
+            if (target == precision) return this;
+            MultiLayerNetwork converted = model.convertDataType(target.dataType());
+            System.out.printf("Modelo convertido para %s: %d parâmetros, %.1f MB por réplica\n",
+                    target.label(), converted.numParams(), target.parameterBytes(converted.numParams()) / (1024.0 * 1024.0));
+            return new SentimentAnalyzer(this, converted, target);
+        }
+
+        /** Memória dos parâmetros desta réplica. */
+        @Override
+        public long parameterBytes() {
+            return precision.parameterBytes(model.numParams());
+        }
+
+        public Result analyze(byte[] imageBytes) {
+            return analyzeBatch(List.of(imageBytes)).get(0);
+        }
+
+        /**
+         * Responde pelo cache as imagens já vistas (mesmo conteúdo) e envia as demais
+         * ao modelo em um único lote. Resultados "ERRO" não são armazenados.
+         */
+        @Override
+        public List<Result> analyzeBatch(List<byte[]> imagesBytes) {
+            return analyzeBatch(imagesBytes, new StageTimings());
+        }
+
+        /** Como {@link #analyzeBatch(List)}, acumulando em {@code timings} a duração de cada etapa do lote. */
+        public List<Result> analyzeBatch(List<byte[]> imagesBytes, StageTimings timings) {
+            return complete(decodeAsync(imagesBytes).join(), timings);
+        }
+
+        /** Primeira etapa do pipeline: consulta o cache e decodifica as demais imagens no pool de decodificação. */
+        public CompletableFuture<DecodeStage.Batch<Result>> decodeAsync(List<byte[]> imagesBytes) {
+            return decoder.decode(imagesBytes, cache, this::decodeImage);
+        }
+
+        /** Segunda etapa: uma passada do modelo para as imagens decodificadas que não estavam no cache. */
+        public List<Result> complete(DecodeStage.Batch<Result> batch, StageTimings timings) {
+            return batch.complete(timings, images -> infer(images, timings), r -> !"ERRO".equals(r.getSentiment()));
+        }
+
+        public void shutdown() {
+            decoder.shutdown();
+        }
+
+        public String cacheStats() {
+            return cache.stats();
+        }
+
+        public long cacheHits() { return cache.hits(); }
+
+        public long cacheMisses() { return cache.misses(); }
+
+        public long cacheEvictions() { return cache.evictions(); }
+
+        public int cacheEntries() { return cache.size(); }
+
+        public long cacheBytes() { return cache.bytes(); }
+
+        /**
+         * Executa uma única passada do modelo para todas as imagens válidas do lote,
+         * empilhadas em um tensor {@code [N,48,48,1]}. Imagens que não puderam ser
+         * decodificadas ({@code null}) recebem o resultado "ERRO", como na análise individual.
+         */
+        private List<Result> infer(List<BufferedImage> decoded, StageTimings timings) {
+            List<Result> results = new ArrayList<>(decoded.size());
+            for (BufferedImage gray : decoded) results.add(gray == null ? new Result("ERRO", 0.0) : null);
+
+            int valid = (int) decoded.stream().filter(img -> img != null).count();
+            if (valid == 0) return results;
+
+            try {
+                long start = System.nanoTime();
+                float[] data = preprocessor.buffer(valid);
+                int row = 0;
+                for (BufferedImage gray : decoded) {
+                    if (gray == null) continue;
+                    preprocessor.write(gray, data, row++);
+                }
+                INDArray input = preprocessor.toINDArray(data, valid);
+                long preprocessed = System.nanoTime() - start;
+                preprocessNanos.addAndGet(preprocessed);
+                preprocessCount.addAndGet(valid);
+                metrics.record("preprocess", preprocessed, valid);
+                timings.add("preprocess", preprocessed);
+
+                INDArray output;
+                long inferenceStart = System.nanoTime();
+                synchronized (modelLock) {
+                    output = model.output(precision.input(input));
+                }
+                long inferenceNanos = System.nanoTime() - inferenceStart;
+                metrics.record("inference", inferenceNanos, valid);
+                timings.add("inference", inferenceNanos);
+                INDArray predicted = Nd4j.argMax(output, 1);
+                row = 0;
+                for (int i = 0; i < results.size(); i++) {
+                    if (decoded.get(i) == null) continue;
+                    int predictedClass = predicted.getInt(row);
+                    results.set(i, new Result(CLASSES[predictedClass], output.getDouble(row, predictedClass)));
+                    row++;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                for (int i = 0; i < results.size(); i++) {
+                    if (results.get(i) == null) results.set(i, new Result("ERRO", 0.0));
+                }
+            }
+            return results;
+        }
+
+        /** Tempo médio de conversão imagem→tensor por mensagem, em microssegundos. */
+        public double averagePreprocessMicros() {
+            long count = preprocessCount.get();
+            return count == 0 ? 0.0 : preprocessNanos.get() / 1000.0 / count;
+        }
+
+        BufferedImage decode(byte[] imageBytes) {
+            try {
+                return decodeImage(imageBytes);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        private BufferedImage decodeImage(byte[] imageBytes) throws IOException {
+            BufferedImage img = decoder.read(imageBytes, SIZE, SIZE);
+            BufferedImage resized = new BufferedImage(SIZE, SIZE, preprocessor.imageType());
+            resized.getGraphics().drawImage(img, 0, 0, SIZE, SIZE, null);
+            return resized;
+        }
+
+        public static class Result {
+            private final String sentiment;
+            private final double confidence;
+
+            public Result(String sentiment, double confidence) {
+                this.sentiment = sentiment;
+                this.confidence = confidence;
+            }
+
+            public String getSentiment() { return sentiment; }
+            public double getConfidence() { return confidence; }
+        }
+    }
+}
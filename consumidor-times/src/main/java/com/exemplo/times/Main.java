@@ -0,0 +1,1697 @@
+package com.exemplo.times;
+
+import com.exemplo.comum.BenchmarkSupport;
+import com.exemplo.comum.BulkRunner;
+import com.exemplo.comum.ConsoleLog;
+import com.exemplo.comum.ConsumerRuntime;
+import com.exemplo.comum.DecodeStage;
+import com.exemplo.comum.Env;
+import com.exemplo.comum.ImageBatch;
+import com.exemplo.comum.ImageMessage;
+import com.exemplo.comum.ImagePreprocessor;
+import com.exemplo.comum.InferenceBenchmark;
+import com.exemplo.comum.Metrics;
+import com.exemplo.comum.ModelPrecision;
+import com.exemplo.comum.PrecisionReport;
+import com.exemplo.comum.ResultCache;
+import com.exemplo.comum.ResultMessage;
+import com.exemplo.comum.ResultPublisher;
+import com.exemplo.comum.Service;
+import com.exemplo.comum.ServiceRunner;
+import com.exemplo.comum.StageTimings;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.*;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.modelimport.keras.KerasModelImport;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.awt.image.BufferedImage;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.io.*;
+import java.nio.file.*;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class Main implements Service {
+
+    private static final String QUEUE_NAME = "team_queue";
+    private static final String CONTROL_QUEUE_NAME = "team_gallery_control";
+    private static final String RESULTS_EXCHANGE = "image_results_exchange";
+    private static final String RESULT_ROUTING_KEY = "result.team";
+
+    private final Env env;
+    private Channel channel;
+    private Channel controlChannel;
+    private ObjectMapper objectMapper;
+    private EmbeddingAnalyzer analyzer;
+    private AtomicLong messagesProcessed;
+    private final boolean replicateModel;
+    private final ConsumerRuntime<EmbeddingAnalyzer> runtime;
+    private final Metrics metrics = Metrics.forService("times");
+    private final ConsoleLog log;
+    private ResultPublisher resultPublisher;
+
+    /**
+     * @param env   configuração; com prefixo {@code TIMES_} quando divide a JVM com outro analisador
+     * @param cores núcleos destinados a este serviço (para workers, threads do ND4J e decodificação)
+     */
+    public Main(Env env, int cores) {
+        this.env = env;
+        this.objectMapper = new ObjectMapper();
+        this.analyzer = new EmbeddingAnalyzer(
+                env.get("GALLERY_FILE", "futebol_gallery.bin"),
+                env.get("EMBEDDINGS_FILE", "futebol_embeddings.txt"),
+                env.get("LABELS_FILE", "futebol_labels.txt"),
+                env.get("MODEL_FILE", "model.h5"),
+                DecodeStage.fromEnv("times", env, cores, metrics),
+                env.get("GALLERY_INDEX", "flat"),
+                env,
+                new ResultCache<>(
+                        env.getInt("CACHE_MAX_ENTRIES", 10000),
+                        env.getInt("CACHE_MAX_BYTES", 32 * 1024 * 1024),
+                        env.getInt("CACHE_TTL_MS", 0),
+                        match -> 48 + 2 * match.getLabel().length() + match.queryBytes()),
+                metrics
+        ).withPrecision(ModelPrecision.fromEnv(env));
+        this.messagesProcessed = new AtomicLong(0);
+        this.runtime = new ConsumerRuntime<>("times", QUEUE_NAME, env, 8, cores, metrics);
+        this.replicateModel = !env.isDisabled("MODEL_REPLICAS");
+        this.log = new ConsoleLog(env.getInt("LOG_SAMPLE_EVERY", 100));
+    }
+
+    @Override
+    public String name() { return "times"; }
+
+    /**
+     * Cada worker tem seu próprio canal (com prefetch e acks independentes), seu
+     * micro-batcher e, com {@code MODEL_REPLICAS}, sua própria cópia do grafo.
+     * Galeria, cache e pool de decodificação são compartilhados.
+     */
+    @Override
+    public void start(Connection connection) throws IOException {
+        channel = connection.createChannel();
+        channel.queueDeclare(QUEUE_NAME, true, false, false, runtime.queueArguments());
+        controlChannel = connection.createChannel();
+        controlChannel.queueDeclare(CONTROL_QUEUE_NAME, true, false, false, null);
+        channel.exchangeDeclare(RESULTS_EXCHANGE, BuiltinExchangeType.TOPIC, true);
+        if (!env.isDisabled("RESULTS_ENABLED")) {
+            resultPublisher = new ResultPublisher(connection, RESULTS_EXCHANGE, RESULT_ROUTING_KEY, objectMapper,
+                    env.getInt("RESULT_BATCH_SIZE", 100), env.getInt("RESULT_LINGER_MS", 50),
+                    env.getInt("RESULT_QUEUE_CAPACITY", 10000), metrics);
+        }
+
+        registerMetrics();
+        runtime.start(connection, i -> analyzer.forWorker(replicateModel && i > 0), this::prepareBatch, this::processBatch);
+
+        analyzer.watchGallery(env.getInt("GALLERY_RELOAD_INTERVAL_S", 10));
+        controlChannel.basicConsume(CONTROL_QUEUE_NAME, false, (consumerTag, delivery) -> handleControl(delivery),
+                consumerTag -> {});
+    }
+
+    /**
+     * Aplica um comando de controle da galeria. O comando só é confirmado depois de aplicado;
+     * inválido ou recusado (ex.: embedding com outra dimensão), é rejeitado sem reenfileirar
+     * e a galeria em uso não muda.
+     */
+    private void handleControl(Delivery delivery) {
+        long tag = delivery.getEnvelope().getDeliveryTag();
+        try {
+            GalleryCommand cmd = objectMapper.readValue(delivery.getBody(), GalleryCommand.class);
+            CompletableFuture<Integer> done;
+            if ("recarregar".equals(cmd.getAction())) {
+                done = analyzer.reloadGallery();
+            } else if ("adicionar".equals(cmd.getAction()) && cmd.getLabel() != null && cmd.getEmbedding() != null) {
+                done = analyzer.addGalleryEntry(cmd.getLabel(), cmd.getEmbedding());
+            } else if ("adicionar".equals(cmd.getAction()) && cmd.getLabel() != null && cmd.getImageData() != null) {
+                done = analyzer.addGalleryEntry(cmd.getLabel(), cmd.getImageData());
+            } else {
+                System.err.println("Comando de galeria inválido: " + new String(delivery.getBody(), StandardCharsets.UTF_8));
+                settleControl(tag, false);
+                return;
+            }
+            done.whenComplete((size, error) -> {
+                if (error != null) {
+                    System.err.println("Falha no comando de galeria '" + cmd.getAction() + "': " + error.getMessage());
+                } else {
+                    System.out.printf("Comando de galeria '%s' aplicado, %d embeddings\n", cmd.getAction(), size);
+                }
+                settleControl(tag, error == null);
+            });
+        } catch (Exception e) {
+            System.err.println("Erro ao ler comando de galeria: " + e.getMessage());
+            settleControl(tag, false);
+        }
+    }
+
+    /** Confirma o comando aplicado ou o rejeita sem reenfileirar: repetido, falharia de novo. */
+    private void settleControl(long tag, boolean applied) {
+        try {
+            if (applied) {
+                controlChannel.basicAck(tag, false);
+            } else {
+                controlChannel.basicReject(tag, false);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao confirmar comando de galeria: " + e.getMessage());
+        }
+    }
+
+    /** Gauges da galeria, do cache e do log; ocupação e latências por etapa ficam com o runtime e o caminho das mensagens. */
+    private void registerMetrics() {
+        metrics.describe("messages_processed", "Mensagens analisadas e confirmadas");
+        metrics.describe("messages_rejected", "Mensagens inválidas rejeitadas sem reenfileirar");
+        metrics.describe("analysis_errors", "Imagens que resultaram em ERRO");
+        metrics.gauge("gallery_size", "Embeddings na galeria em uso", () -> analyzer.gallerySize());
+        metrics.gauge("model_parameter_bytes", "Memória dos parâmetros de cada réplica do grafo",
+                () -> analyzer.parameterBytes());
+        metrics.gauge("cache_hits", "Acertos acumulados do cache de resultados", () -> analyzer.cacheHits());
+        metrics.gauge("cache_misses", "Faltas acumuladas do cache de resultados", () -> analyzer.cacheMisses());
+        metrics.counter("cache_evictions", "Entradas removidas do cache por limite de tamanho, memória ou TTL",
+                () -> analyzer.cacheEvictions());
+        metrics.gauge("cache_entries", "Entradas no cache de resultados", () -> analyzer.cacheEntries());
+        metrics.gauge("cache_bytes", "Memória estimada das entradas do cache de resultados", () -> analyzer.cacheBytes());
+        metrics.gauge("console_log_dropped", "Linhas de log descartadas por fila cheia", () -> log.dropped());
+    }
+
+    /** Etapa de preparação: lê as mensagens e decodifica as imagens no pool de decodificação. */
+    private CompletableFuture<ImageBatch<Match>> prepareBatch(List<Delivery> batch) {
+        return ImageBatch.prepare(batch, objectMapper, analyzer::decodeAsync);
+    }
+
+    private void processBatch(Channel channel, EmbeddingAnalyzer analyzer, ImageBatch<Match> batch) {
+        List<ImageMessage> messages = batch.messages();
+        List<Long> tags = batch.tags();
+        long now = batch.preparedAt();
+        int acked = 0;
+
+        try {
+            for (long tag : batch.invalidTags()) {
+                channel.basicNack(tag, false, false);
+                metrics.increment("messages_rejected");
+            }
+            for (ImageMessage msg : messages) {
+                if (msg.getTimestamp() > 0) {
+                    metrics.record("queue_wait", TimeUnit.MILLISECONDS.toNanos(now - msg.getTimestamp()));
+                }
+            }
+
+            StageTimings timings = new StageTimings();
+            List<Match> predictions = analyzer.complete(batch.images(), timings);
+            long processedAt = System.currentTimeMillis();
+            for (int i = 0; i < predictions.size(); i++) {
+                Match prediction = predictions.get(i);
+                long count = messagesProcessed.incrementAndGet();
+                if (prediction.getLabel().equals("ERRO")) metrics.increment("analysis_errors");
+                if (log.sample()) {
+                    log.printf("[%s] Predicted: %s | Total processadas: %d\n",
+                            messages.get(i).getFileName(), prediction.getLabel(), count);
+                }
+                if (resultPublisher != null) {
+                    ImageMessage msg = messages.get(i);
+                    Map<String, Long> stageMicros = new LinkedHashMap<>();
+                    if (msg.getTimestamp() > 0) stageMicros.put("queue_wait", (now - msg.getTimestamp()) * 1000);
+                    stageMicros.putAll(timings.asMap());
+                    resultPublisher.offer(new ResultMessage(msg, "team", prediction.getLabel(),
+                            prediction.getScore(), processedAt, stageMicros));
+                }
+                if (count % 100 == 0) {
+                    log.printf("Pré-processamento médio: %.1f µs/mensagem | %s\n",
+                            analyzer.averagePreprocessMicros(), analyzer.cacheStats());
+                }
+
+                long ackStart = System.nanoTime();
+                channel.basicAck(tags.get(i), false);
+                acked++;
+                metrics.recordSince("ack", ackStart, 1);
+                metrics.increment("messages_processed");
+                long timestamp = messages.get(i).getTimestamp();
+                if (timestamp > 0) {
+                    metrics.record("end_to_end", TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - timestamp));
+                }
+            }
+
+        } catch (Exception e) {
+            System.err.println("Erro ao processar lote: " + e.getMessage());
+            e.printStackTrace();
+            runtime.requeue(channel, tags.subList(acked, tags.size()), e);
+        }
+    }
+
+    /**
+     * Processa um diretório de imagens ou um log de mensagens sem o broker, com os mesmos
+     * workers, réplicas e pipeline do consumo, gravando os resultados em {@code output}
+     * (JSON Lines) com checkpoint. Rodar de novo com a mesma saída retoma de onde parou.
+     */
+    public void runBulk(Path source, Path output) throws IOException {
+        BulkRunner<EmbeddingAnalyzer> bulk = new BulkRunner<>("times", "team", env, runtime.batchSize(),
+                runtime.workers(), objectMapper);
+        try {
+            bulk.run(source, output, i -> analyzer.forWorker(replicateModel && i > 0),
+                    (replica, messages) -> ImageBatch.of(messages, replica::decodeAsync), this::analyzeBulk);
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+
+    private List<ResultMessage> analyzeBulk(EmbeddingAnalyzer analyzer, ImageBatch<Match> batch) {
+        StageTimings timings = new StageTimings();
+        List<Match> predictions = analyzer.complete(batch.images(), timings);
+        long processedAt = System.currentTimeMillis();
+        List<ResultMessage> out = new ArrayList<>(predictions.size());
+        for (int i = 0; i < predictions.size(); i++) {
+            Match prediction = predictions.get(i);
+            out.add(new ResultMessage(batch.messages().get(i), "team", prediction.getLabel(), prediction.getScore(),
+                    processedAt, timings.asMap()));
+        }
+        metrics.add("messages_processed", out.size());
+        return out;
+    }
+
+    /** Para de consumir, conclui os lotes já recebidos e publica os resultados pendentes. */
+    @Override
+    public void close() {
+        runtime.close();
+        if (resultPublisher != null) resultPublisher.close();
+        analyzer.shutdown();
+        try { if (controlChannel != null && controlChannel.isOpen()) controlChannel.close(); } catch (Exception ignored) {}
+        try { if (channel != null && channel.isOpen()) channel.close(); } catch (Exception ignored) {}
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 2 && args[0].equals("--bulk")) {
+            try {
+                new Main(Env.plain(), Runtime.getRuntime().availableProcessors())
+                        .runBulk(Paths.get(args[1]), Paths.get(args[2]));
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--benchmark-workers")) {
+            WorkerBenchmark.run(
+                    args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors(),
+                    args.length > 2 ? Integer.parseInt(args[2]) : 10,
+                    Env.plain().getInt("BATCH_SIZE", 8));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--benchmark-precision")) {
+            PrecisionBenchmark.run(
+                    args.length > 1 ? Integer.parseInt(args[1]) : 128,
+                    args.length > 2 ? Integer.parseInt(args[2]) : Env.plain().getInt("BATCH_SIZE", 8),
+                    args.length > 3 ? Paths.get(args[3]) : null);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--benchmark-index")) {
+            IndexBenchmark.run(
+                    args.length > 1 ? Integer.parseInt(args[1]) : 20000,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 500,
+                    args.length > 3 ? Integer.parseInt(args[3]) : 1280,
+                    args.length > 4 ? Integer.parseInt(args[4]) : 5);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--convert-gallery")) {
+            try {
+                GalleryFile.convert(
+                        Paths.get(args.length > 1 ? args[1] : "futebol_embeddings.txt"),
+                        Paths.get(args.length > 2 ? args[2] : "futebol_labels.txt"),
+                        Paths.get(args.length > 3 ? args[3] : "futebol_gallery.bin"));
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+
+        ServiceRunner.run("consumidor-times",
+                List.of(new Main(Env.plain(), Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Mede a vazão de inferência (sem broker) com 1, 2, 4... workers, cada um com
+     * sua réplica do modelo, usando imagens sintéticas distintas e cache desativado.
+     * Uso: {@code java -jar futebol-consumer.jar --benchmark-workers [maxWorkers] [segundos]}
+     */
+    public static class WorkerBenchmark {
+        public static void run(int maxWorkers, int seconds, int batchSize) {
+            EmbeddingAnalyzer base = benchmarkAnalyzer();
+            InferenceBenchmark.workers(maxWorkers, seconds, batchSize, BenchmarkSupport.syntheticImages(256, 256),
+                    i -> base.forWorker(i > 0));
+            base.shutdown();
+        }
+    }
+
+    /** Analisador dos benchmarks: galeria e índice do ambiente, cache desativado. */
+    static EmbeddingAnalyzer benchmarkAnalyzer() {
+        return new EmbeddingAnalyzer(
+                Env.plain().get("GALLERY_FILE", "futebol_gallery.bin"),
+                "futebol_embeddings.txt", "futebol_labels.txt", "model.h5",
+                Runtime.getRuntime().availableProcessors(),
+                Env.plain().get("GALLERY_INDEX", "flat"),
+                new ResultCache<>(0, 0, 0, label -> 0), Metrics.global());
+    }
+
+    /**
+     * Produto escalar entre vetores float armazenados em arrays contíguos.
+     * Usa a Vector API ({@code jdk.incubator.vector}) quando o módulo está disponível
+     * na JVM e cai para um laço escalar desenrolado caso contrário.
+     * <p>
+     * A escolha vale para a JVM inteira e só este serviço a usa, por isso lê
+     * {@code VECTOR_KERNEL} com o prefixo {@code TIMES_}, como as demais variáveis do
+     * serviço no processo {@code analisadores}.
+     */
+    public interface DotKernel {
+        DotKernel INSTANCE = select(Env.prefixed("TIMES"));
+
+        float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+        /**
+         * Produto de {@code query} com {@code rows} linhas consecutivas de {@code matrix}
+         * a partir de {@code offset}, gravado em {@code out}.
+         */
+        default void dotRows(float[] query, float[] matrix, int offset, int rows, int dim, float[] out) {
+            for (int r = 0; r < rows; r++) out[r] = dot(query, 0, matrix, offset + r * dim, dim);
+        }
+
+        String name();
+
+        private static DotKernel select(Env env) {
+            String forced = env.get("VECTOR_KERNEL", "auto");
+            if (!forced.equalsIgnoreCase("scalar")
+                    && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    return new VectorDotKernel();
+                } catch (Throwable e) {
+                    System.err.println("Vector API indisponível, usando kernel escalar: " + e);
+                }
+            }
+            return new ScalarDotKernel();
+        }
+    }
+
+    static final class ScalarDotKernel implements DotKernel {
+        @Override
+        public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (; i + 3 < length; i += 4) {
+                s0 += a[aOffset + i] * b[bOffset + i];
+                s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+                s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+                s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+            }
+            for (; i < length; i++) s0 += a[aOffset + i] * b[bOffset + i];
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public String name() { return "escalar"; }
+    }
+
+    /** Só é carregada por {@link DotKernel#select} depois de confirmado o módulo da Vector API. */
+    static final class VectorDotKernel implements DotKernel {
+        private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+        @Override
+        public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = 0;
+            int upper = SPECIES.loopBound(length);
+            for (; i < upper; i += SPECIES.length()) {
+                FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+                FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+                acc = va.fma(vb, acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < length; i++) sum += a[aOffset + i] * b[bOffset + i];
+            return sum;
+        }
+
+        /** Processa quatro linhas por vez, reaproveitando cada bloco da consulta carregado. */
+        @Override
+        public void dotRows(float[] query, float[] matrix, int offset, int rows, int dim, float[] out) {
+            int upper = SPECIES.loopBound(dim);
+            int r = 0;
+            for (; r + 3 < rows; r += 4) {
+                int o0 = offset + r * dim, o1 = o0 + dim, o2 = o1 + dim, o3 = o2 + dim;
+                FloatVector acc0 = FloatVector.zero(SPECIES);
+                FloatVector acc1 = acc0, acc2 = acc0, acc3 = acc0;
+                int i = 0;
+                for (; i < upper; i += SPECIES.length()) {
+                    FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                    acc0 = q.fma(FloatVector.fromArray(SPECIES, matrix, o0 + i), acc0);
+                    acc1 = q.fma(FloatVector.fromArray(SPECIES, matrix, o1 + i), acc1);
+                    acc2 = q.fma(FloatVector.fromArray(SPECIES, matrix, o2 + i), acc2);
+                    acc3 = q.fma(FloatVector.fromArray(SPECIES, matrix, o3 + i), acc3);
+                }
+                float s0 = acc0.reduceLanes(VectorOperators.ADD);
+                float s1 = acc1.reduceLanes(VectorOperators.ADD);
+                float s2 = acc2.reduceLanes(VectorOperators.ADD);
+                float s3 = acc3.reduceLanes(VectorOperators.ADD);
+                for (; i < dim; i++) {
+                    s0 += query[i] * matrix[o0 + i];
+                    s1 += query[i] * matrix[o1 + i];
+                    s2 += query[i] * matrix[o2 + i];
+                    s3 += query[i] * matrix[o3 + i];
+                }
+                out[r] = s0;
+                out[r + 1] = s1;
+                out[r + 2] = s2;
+                out[r + 3] = s3;
+            }
+            for (; r < rows; r++) out[r] = dot(query, 0, matrix, offset + r * dim, dim);
+        }
+
+        @Override
+        public String name() { return "vector-api (" + SPECIES.length() + " floats)"; }
+    }
+
+    /**
+     * Resultado de uma busca na galeria: rótulo e similaridade de cosseno. No cache, guarda
+     * também o embedding normalizado da consulta, para decidir se uma entrada adicionada
+     * à galeria mudaria o resultado.
+     */
+    public static class Match {
+        private final String label;
+        private final double score;
+        private final float[] query;
+
+        public Match(String label, double score) {
+            this(label, score, null);
+        }
+
+        private Match(String label, double score, float[] query) {
+            this.label = label;
+            this.score = score;
+            this.query = query;
+        }
+
+        public String getLabel() { return label; }
+        public double getScore() { return score; }
+
+        /** O mesmo resultado, com o embedding (normalizado) da consulta que o produziu. */
+        Match withQuery(float[] normalizedQuery) {
+            return new Match(label, score, normalizedQuery);
+        }
+
+        /** Bytes do embedding guardado, para o limite de memória do cache. */
+        int queryBytes() { return query == null ? 0 : 4 * query.length; }
+
+        /**
+         * {@code true} se um vetor novo (normalizado) da galeria puder ser o mais similar à
+         * consulta; sem o embedding da consulta, não há como saber.
+         */
+        boolean couldChange(float[] normalizedEntry) {
+            if (query == null) return true;
+            if (query.length != normalizedEntry.length) return true;
+            return EmbeddingIndex.dot(query, normalizedEntry) >= score;
+        }
+    }
+
+    /**
+     * Índice de embeddings da galeria. Os vetores são normalizados (L2) na inserção,
+     * de forma que a similaridade de cosseno se reduz a um produto escalar.
+     * Inserções não são concorrentes com buscas; as buscas podem ser feitas em paralelo.
+     */
+    public interface EmbeddingIndex {
+        /** @throws IllegalArgumentException se {@code vector} tiver dimensão diferente da galeria */
+        void add(String label, float[] vector);
+
+        /** Os {@code k} vizinhos mais similares, em ordem decrescente de similaridade. */
+        List<Match> search(float[] query, int k);
+
+        /** Insere {@code labels.size()} vetores consecutivos de {@code vectors}, linha por vetor. */
+        default void addAll(List<String> labels, float[] vectors, int dim, boolean normalized) {
+            for (int i = 0; i < labels.size(); i++) {
+                add(labels.get(i), Arrays.copyOfRange(vectors, i * dim, (i + 1) * dim));
+            }
+        }
+
+        /** Busca para várias consultas de uma vez; por padrão, uma {@link #search} por consulta. */
+        default List<List<Match>> searchBatch(float[][] queries, int k) {
+            List<List<Match>> results = new ArrayList<>(queries.length);
+            for (float[] query : queries) results.add(search(query, k));
+            return results;
+        }
+
+        int size();
+
+        /**
+         * Cópia independente para inserções sem afetar buscas em andamento no original
+         * (copy-on-write do snapshot); copia a estrutura, sem recalcular distâncias.
+         */
+        EmbeddingIndex copy();
+
+        static EmbeddingIndex create(String type) {
+            return create(type, Env.plain());
+        }
+
+        /** Índice {@code type} com os parâmetros ({@code FLAT_SCORING}, {@code HNSW_*}) de {@code env}. */
+        static EmbeddingIndex create(String type, Env env) {
+            switch (type.toLowerCase()) {
+                case "flat":
+                    return new FlatIndex(env.get("FLAT_SCORING", "kernel").equals("nd4j"));
+                case "hnsw":
+                    return new HnswIndex(
+                            env.getInt("HNSW_M", 16),
+                            env.getInt("HNSW_EF_CONSTRUCTION", 200),
+                            env.getInt("HNSW_EF_SEARCH", 64));
+                default:
+                    throw new IllegalArgumentException("Tipo de índice desconhecido: " + type);
+            }
+        }
+
+        static float[] normalize(float[] vector) {
+            float[] normalized = new float[vector.length];
+            normalizeInto(vector, normalized, 0);
+            return normalized;
+        }
+
+        /** Copia {@code vector} normalizado para {@code dest} a partir de {@code offset}. */
+        static void normalizeInto(float[] vector, float[] dest, int offset) {
+            double norm = Math.sqrt(DotKernel.INSTANCE.dot(vector, 0, vector, 0, vector.length));
+            if (norm == 0) return;
+            for (int i = 0; i < vector.length; i++) dest[offset + i] = (float) (vector[i] / norm);
+        }
+
+        static float dot(float[] a, float[] b) {
+            return DotKernel.INSTANCE.dot(a, 0, b, 0, a.length);
+        }
+    }
+
+    /**
+     * Busca exata sobre uma matriz contígua {@code float[]} (linha por vetor, já normalizada).
+     * A pontuação usa o {@link DotKernel} em blocos de linhas ou, com {@code useNd4j},
+     * um único produto matriz-vetor (ou matriz-matriz em lote) no ND4J.
+     */
+    public static class FlatIndex implements EmbeddingIndex {
+        private static final int BLOCK_ROWS = 256;
+
+        private final boolean useNd4j;
+        private final List<String> labels = new ArrayList<>();
+        private float[] data = new float[0];
+        private int dim = -1;
+        private int count;
+        private INDArray matrix;
+
+        public FlatIndex() {
+            this(false);
+        }
+
+        public FlatIndex(boolean useNd4j) {
+            this.useNd4j = useNd4j;
+        }
+
+        @Override
+        public synchronized void add(String label, float[] vector) {
+            if (dim < 0) {
+                dim = vector.length;
+            } else if (vector.length != dim) {
+                throw new IllegalArgumentException("Dimensão " + vector.length + " diferente da galeria (" + dim + ")");
+            }
+            if ((count + 1) * dim > data.length) {
+                data = Arrays.copyOf(data, Math.max(dim * 64, data.length + (data.length >> 1) + dim));
+            }
+            EmbeddingIndex.normalizeInto(vector, data, count * dim);
+            labels.add(label);
+            count++;
+            matrix = null;
+        }
+
+        /** Inserção em bloco; vetores já normalizados são copiados sem reprocessamento. */
+        @Override
+        public synchronized void addAll(List<String> newLabels, float[] vectors, int vectorDim, boolean normalized) {
+            if (newLabels.isEmpty()) return;
+            if (dim < 0) {
+                dim = vectorDim;
+            } else if (vectorDim != dim) {
+                throw new IllegalArgumentException("Dimensão " + vectorDim + " diferente da galeria (" + dim + ")");
+            }
+            int n = newLabels.size();
+            if (count == 0 && normalized && vectors.length == n * dim) {
+                // Galeria imutável (snapshot): compartilha o array em vez de copiar.
+                data = vectors;
+                labels.addAll(newLabels);
+                count = n;
+                matrix = null;
+                return;
+            }
+            if ((count + n) * dim > data.length) {
+                data = Arrays.copyOf(data, (count + n) * dim);
+            }
+            if (normalized) {
+                System.arraycopy(vectors, 0, data, count * dim, n * dim);
+            } else {
+                float[] row = new float[dim];
+                for (int i = 0; i < n; i++) {
+                    System.arraycopy(vectors, i * dim, row, 0, dim);
+                    EmbeddingIndex.normalizeInto(row, data, (count + i) * dim);
+                }
+            }
+            labels.addAll(newLabels);
+            count += n;
+            matrix = null;
+        }
+
+        @Override
+        public List<Match> search(float[] query, int k) {
+            if (useNd4j && count > 0) return searchBatch(new float[][]{query}, k).get(0);
+
+            float[] q = EmbeddingIndex.normalize(query);
+            TopK top = new TopK(k);
+            float[] scores = new float[BLOCK_ROWS];
+            for (int start = 0; start < count; start += BLOCK_ROWS) {
+                int rows = Math.min(BLOCK_ROWS, count - start);
+                DotKernel.INSTANCE.dotRows(q, data, start * dim, rows, dim, scores);
+                for (int r = 0; r < rows; r++) top.offer(start + r, scores[r]);
+            }
+            return top.toMatches(labels);
+        }
+
+        @Override
+        public List<List<Match>> searchBatch(float[][] queries, int k) {
+            if (!useNd4j || count == 0) return EmbeddingIndex.super.searchBatch(queries, k);
+
+            float[] flat = new float[queries.length * dim];
+            for (int i = 0; i < queries.length; i++) EmbeddingIndex.normalizeInto(queries[i], flat, i * dim);
+            INDArray q = Nd4j.create(flat, new long[]{queries.length, dim}, 'c');
+            float[][] scores = q.mmul(matrix().transpose()).toFloatMatrix();
+
+            List<List<Match>> results = new ArrayList<>(queries.length);
+            for (float[] row : scores) {
+                TopK top = new TopK(k);
+                for (int i = 0; i < row.length; i++) top.offer(i, row[i]);
+                results.add(top.toMatches(labels));
+            }
+            return results;
+        }
+
+        @Override
+        public int size() { return count; }
+
+        @Override
+        public synchronized FlatIndex copy() {
+            FlatIndex copy = new FlatIndex(useNd4j);
+            // Folga para a inserção que normalmente segue a cópia.
+            copy.data = Arrays.copyOf(data, count * Math.max(dim, 0) + Math.max(dim, 0));
+            copy.labels.addAll(labels);
+            copy.dim = dim;
+            copy.count = count;
+            return copy;
+        }
+
+        /** Galeria como matriz ND4J {@code [count, dim]}, criada sob demanda. */
+        public synchronized INDArray matrix() {
+            if (matrix == null) {
+                matrix = Nd4j.create(Arrays.copyOf(data, count * dim), new long[]{count, dim}, 'c');
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * Busca aproximada com grafo HNSW (Hierarchical Navigable Small World).
+     * {@code m} controla o grau do grafo, {@code efConstruction} a qualidade da
+     * construção e {@code efSearch} o compromisso entre recall e latência na busca.
+     */
+    public static class HnswIndex implements EmbeddingIndex {
+        private final int m;
+        private final int maxLinks0;
+        private final int efConstruction;
+        private volatile int efSearch;
+        private final double levelMultiplier;
+        private final java.util.Random random;
+
+        private final List<float[]> vectors = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final List<int[][]> links = new ArrayList<>();
+        private final List<int[]> linkCounts = new ArrayList<>();
+        private int entryPoint = -1;
+        private int maxLevel = -1;
+
+        public HnswIndex(int m, int efConstruction, int efSearch) {
+            this(m, efConstruction, efSearch, new java.util.Random(42));
+        }
+
+        private HnswIndex(int m, int efConstruction, int efSearch, java.util.Random random) {
+            if (m < 2) throw new IllegalArgumentException("m deve ser >= 2");
+            this.random = random;
+            this.m = m;
+            this.maxLinks0 = 2 * m;
+            this.efConstruction = Math.max(efConstruction, m);
+            this.efSearch = Math.max(1, efSearch);
+            this.levelMultiplier = 1.0 / Math.log(m);
+        }
+
+        public void setEfSearch(int efSearch) { this.efSearch = Math.max(1, efSearch); }
+
+        @Override
+        public synchronized void add(String label, float[] vector) {
+            if (!vectors.isEmpty() && vector.length != vectors.get(0).length) {
+                throw new IllegalArgumentException(
+                        "Dimensão " + vector.length + " diferente da galeria (" + vectors.get(0).length + ")");
+            }
+            float[] v = EmbeddingIndex.normalize(vector);
+            int id = vectors.size();
+            int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+
+            int[][] nodeLinks = new int[level + 1][];
+            for (int l = 0; l <= level; l++) nodeLinks[l] = new int[maxLinks(l)];
+            vectors.add(v);
+            labels.add(label);
+            links.add(nodeLinks);
+            linkCounts.add(new int[level + 1]);
+
+            if (entryPoint < 0) {
+                entryPoint = id;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(v, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Candidate> candidates = searchLayer(v, current, efConstruction, l);
+                int connections = Math.min(m, candidates.size());
+                for (int i = 0; i < connections; i++) {
+                    int neighbor = candidates.get(i).id;
+                    connect(id, neighbor, l);
+                    connect(neighbor, id, l);
+                }
+                current = candidates.get(0).id;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = id;
+            }
+        }
+
+        @Override
+        public List<Match> search(float[] query, int k) {
+            if (entryPoint < 0) return new ArrayList<>();
+            float[] q = EmbeddingIndex.normalize(query);
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(q, current, l);
+            }
+            List<Candidate> candidates = searchLayer(q, current, Math.max(efSearch, k), 0);
+
+            List<Match> matches = new ArrayList<>(Math.min(k, candidates.size()));
+            for (int i = 0; i < k && i < candidates.size(); i++) {
+                Candidate c = candidates.get(i);
+                matches.add(new Match(labels.get(c.id), c.similarity));
+            }
+            return matches;
+        }
+
+        @Override
+        public int size() { return vectors.size(); }
+
+        /** Copia as listas de vizinhos (os vetores, imutáveis, são compartilhados). */
+        @Override
+        public synchronized HnswIndex copy() {
+            HnswIndex copy = new HnswIndex(m, efConstruction, efSearch, new java.util.Random(42L + vectors.size()));
+            copy.vectors.addAll(vectors);
+            copy.labels.addAll(labels);
+            for (int[][] nodeLinks : links) {
+                int[][] copied = new int[nodeLinks.length][];
+                for (int l = 0; l < nodeLinks.length; l++) copied[l] = nodeLinks[l].clone();
+                copy.links.add(copied);
+            }
+            for (int[] counts : linkCounts) copy.linkCounts.add(counts.clone());
+            copy.entryPoint = entryPoint;
+            copy.maxLevel = maxLevel;
+            return copy;
+        }
+
+        private int maxLinks(int level) { return level == 0 ? maxLinks0 : m; }
+
+        private int greedyClosest(float[] q, int start, int level) {
+            int current = start;
+            float best = EmbeddingIndex.dot(q, vectors.get(current));
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbors = links.get(current)[level];
+                int count = linkCounts.get(current)[level];
+                for (int i = 0; i < count; i++) {
+                    float sim = EmbeddingIndex.dot(q, vectors.get(neighbors[i]));
+                    if (sim > best) {
+                        best = sim;
+                        current = neighbors[i];
+                        changed = true;
+                    }
+                }
+            }
+            return current;
+        }
+
+        /** Busca em largura limitada a {@code ef} candidatos; retorna em ordem decrescente de similaridade. */
+        private List<Candidate> searchLayer(float[] q, int start, int ef, int level) {
+            java.util.BitSet visited = new java.util.BitSet(vectors.size());
+            java.util.PriorityQueue<Candidate> toVisit =
+                    new java.util.PriorityQueue<>((a, b) -> Float.compare(b.similarity, a.similarity));
+            java.util.PriorityQueue<Candidate> found =
+                    new java.util.PriorityQueue<>((a, b) -> Float.compare(a.similarity, b.similarity));
+
+            Candidate first = new Candidate(start, EmbeddingIndex.dot(q, vectors.get(start)));
+            visited.set(start);
+            toVisit.add(first);
+            found.add(first);
+
+            while (!toVisit.isEmpty()) {
+                Candidate c = toVisit.poll();
+                if (found.size() >= ef && c.similarity < found.peek().similarity) break;
+
+                int[] neighbors = links.get(c.id)[level];
+                int count = linkCounts.get(c.id)[level];
+                for (int i = 0; i < count; i++) {
+                    int n = neighbors[i];
+                    if (visited.get(n)) continue;
+                    visited.set(n);
+                    float sim = EmbeddingIndex.dot(q, vectors.get(n));
+                    if (found.size() < ef || sim > found.peek().similarity) {
+                        Candidate nc = new Candidate(n, sim);
+                        toVisit.add(nc);
+                        found.add(nc);
+                        if (found.size() > ef) found.poll();
+                    }
+                }
+            }
+
+            List<Candidate> result = new ArrayList<>(found);
+            result.sort((a, b) -> Float.compare(b.similarity, a.similarity));
+            return result;
+        }
+
+        /** Liga {@code from} a {@code to}; se a lista estiver cheia, mantém os vizinhos mais similares. */
+        private void connect(int from, int to, int level) {
+            int[] neighbors = links.get(from)[level];
+            int[] counts = linkCounts.get(from);
+            if (counts[level] < neighbors.length) {
+                neighbors[counts[level]++] = to;
+                return;
+            }
+
+            float[] base = vectors.get(from);
+            int worst = -1;
+            float worstSim = EmbeddingIndex.dot(base, vectors.get(to));
+            for (int i = 0; i < neighbors.length; i++) {
+                float sim = EmbeddingIndex.dot(base, vectors.get(neighbors[i]));
+                if (sim < worstSim) {
+                    worstSim = sim;
+                    worst = i;
+                }
+            }
+            if (worst >= 0) neighbors[worst] = to;
+        }
+
+        private static final class Candidate {
+            final int id;
+            final float similarity;
+
+            Candidate(int id, float similarity) {
+                this.id = id;
+                this.similarity = similarity;
+            }
+        }
+    }
+
+    /** Mantém os {@code k} maiores scores vistos em um heap mínimo. */
+    static final class TopK {
+        private final int k;
+        private final int[] ids;
+        private final float[] scores;
+        private int size;
+
+        TopK(int k) {
+            this.k = Math.max(1, k);
+            this.ids = new int[this.k];
+            this.scores = new float[this.k];
+        }
+
+        void offer(int id, float score) {
+            if (size < k) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        List<Match> toMatches(List<String> labels) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+            List<Match> matches = new ArrayList<>(size);
+            for (int i : order) matches.add(new Match(labels.get(ids[i]), scores[i]));
+            return matches;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[parent] <= scores[i]) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1, right = left + 1;
+                if (left < size && scores[left] < scores[smallest]) smallest = left;
+                if (right < size && scores[right] < scores[smallest]) smallest = right;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+            float score = scores[a]; scores[a] = scores[b]; scores[b] = score;
+        }
+    }
+
+    /**
+     * Formato binário da galeria, lido via {@link FileChannel#map} sem parsing de texto.
+     * <pre>
+     * 0  int   magic "GAL1"
+     * 4  int   versão
+     * 8  int   dimensão
+     * 12 int   quantidade de vetores
+     * 16 long  offset da tabela de rótulos
+     * 24 int   CRC32 de todos os bytes a partir do offset 32
+     * 28 int   flags (bit 0: vetores já normalizados)
+     * 32       vetores float32, linha por vetor
+     * ...      rótulos: para cada vetor, short com o tamanho + bytes UTF-8
+     * </pre>
+     * Todos os valores são little-endian.
+     */
+    public static class GalleryFile {
+        private static final int MAGIC = 0x314C4147; // "GAL1" em little-endian
+        private static final int VERSION = 1;
+        private static final int HEADER_SIZE = 32;
+        private static final int FLAG_NORMALIZED = 1;
+
+        private final List<String> labels;
+        private final float[] vectors;
+        private final int dim;
+        private final boolean normalized;
+
+        public GalleryFile(List<String> labels, float[] vectors, int dim, boolean normalized) {
+            if (labels.size() * dim != vectors.length) {
+                throw new IllegalArgumentException("Quantidade de rótulos não corresponde aos vetores");
+            }
+            this.labels = labels;
+            this.vectors = vectors;
+            this.dim = dim;
+            this.normalized = normalized;
+        }
+
+        public List<String> getLabels() { return labels; }
+        public float[] getVectors() { return vectors; }
+        public int getDim() { return dim; }
+        public int getCount() { return labels.size(); }
+        public boolean isNormalized() { return normalized; }
+
+        /** Cópia com os vetores normalizados (L2); retorna a própria instância se já estiverem. */
+        public GalleryFile normalize() {
+            if (normalized) return this;
+            float[] out = new float[vectors.length];
+            float[] row = new float[dim];
+            for (int i = 0; i < getCount(); i++) {
+                System.arraycopy(vectors, i * dim, row, 0, dim);
+                EmbeddingIndex.normalizeInto(row, out, i * dim);
+            }
+            return new GalleryFile(labels, out, dim, true);
+        }
+
+        /** Lê o par texto (um embedding por linha) + rótulos usado originalmente. */
+        public static GalleryFile readText(Path embeddingsFile, Path labelsFile) throws IOException {
+            List<String> embLines = Files.readAllLines(embeddingsFile, StandardCharsets.UTF_8);
+            List<String> lblLines = Files.readAllLines(labelsFile, StandardCharsets.UTF_8);
+            if (embLines.size() > lblLines.size()) {
+                throw new IOException("Há mais embeddings (" + embLines.size() + ") do que rótulos (" + lblLines.size() + ")");
+            }
+
+            int dim = embLines.isEmpty() ? 0 : embLines.get(0).trim().split("\\s+").length;
+            float[] vectors = new float[embLines.size() * dim];
+            List<String> labels = new ArrayList<>(embLines.size());
+            for (int i = 0; i < embLines.size(); i++) {
+                String[] parts = embLines.get(i).trim().split("\\s+");
+                if (parts.length != dim) {
+                    throw new IOException("Linha " + (i + 1) + " tem dimensão " + parts.length + ", esperado " + dim);
+                }
+                for (int d = 0; d < dim; d++) vectors[i * dim + d] = Float.parseFloat(parts[d]);
+                labels.add(lblLines.get(i).trim());
+            }
+            return new GalleryFile(labels, vectors, dim, false);
+        }
+
+        public static GalleryFile read(Path file, boolean verifyChecksum) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+                    throw new IOException("Arquivo de galeria inválido: " + file);
+                }
+                int version = buf.getInt(4);
+                if (version != VERSION) {
+                    throw new IOException("Versão de galeria não suportada: " + version);
+                }
+                int dim = buf.getInt(8);
+                int count = buf.getInt(12);
+                long labelsOffset = buf.getLong(16);
+                int checksum = buf.getInt(24);
+                int flags = buf.getInt(28);
+                if (labelsOffset != HEADER_SIZE + 4L * dim * count || labelsOffset > buf.limit()) {
+                    throw new IOException("Cabeçalho de galeria inconsistente: " + file);
+                }
+
+                if (verifyChecksum) {
+                    CRC32 crc = new CRC32();
+                    crc.update(buf.duplicate().position(HEADER_SIZE));
+                    if ((int) crc.getValue() != checksum) {
+                        throw new IOException("Checksum da galeria não confere: " + file);
+                    }
+                }
+
+                float[] vectors = new float[dim * count];
+                buf.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(HEADER_SIZE).asFloatBuffer().get(vectors);
+
+                List<String> labels = new ArrayList<>(count);
+                ByteBuffer lbl = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN).position((int) labelsOffset);
+                for (int i = 0; i < count; i++) {
+                    byte[] bytes = new byte[lbl.getShort() & 0xFFFF];
+                    lbl.get(bytes);
+                    labels.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                return new GalleryFile(labels, vectors, dim, (flags & FLAG_NORMALIZED) != 0);
+            }
+        }
+
+        /** Grava a galeria com os vetores normalizados (L2). */
+        public void write(Path file) throws IOException {
+            int count = getCount();
+            List<byte[]> encodedLabels = new ArrayList<>(count);
+            int labelsSize = 0;
+            for (String label : labels) {
+                byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF) throw new IOException("Rótulo muito longo: " + label);
+                encodedLabels.add(bytes);
+                labelsSize += 2 + bytes.length;
+            }
+
+            long labelsOffset = HEADER_SIZE + 4L * dim * count;
+            ByteBuffer buf = ByteBuffer.allocate((int) (labelsOffset + labelsSize)).order(ByteOrder.LITTLE_ENDIAN);
+            buf.position(HEADER_SIZE);
+            float[] row = new float[dim];
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(vectors, i * dim, row, 0, dim);
+                for (float v : normalized ? row : EmbeddingIndex.normalize(row)) buf.putFloat(v);
+            }
+            for (byte[] bytes : encodedLabels) {
+                buf.putShort((short) bytes.length);
+                buf.put(bytes);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), HEADER_SIZE, buf.capacity() - HEADER_SIZE);
+            buf.putInt(0, MAGIC);
+            buf.putInt(4, VERSION);
+            buf.putInt(8, dim);
+            buf.putInt(12, count);
+            buf.putLong(16, labelsOffset);
+            buf.putInt(24, (int) crc.getValue());
+            buf.putInt(28, FLAG_NORMALIZED);
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, buf.array());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /** Converte o par texto/rótulos para o formato binário. */
+        public static void convert(Path embeddingsFile, Path labelsFile, Path out) throws IOException {
+            GalleryFile gallery = readText(embeddingsFile, labelsFile);
+            gallery.write(out);
+            read(out, true);
+            System.out.printf("Galeria convertida: %d vetores de dimensão %d -> %s (%d bytes)\n",
+                    gallery.getCount(), gallery.getDim(), out, Files.size(out));
+        }
+    }
+
+    /**
+     * Compara recall e latência dos índices com a varredura linear original
+     * ({@code cosineSimilarity} sobre {@code double[]}) em uma galeria sintética.
+     * Uso: {@code java -jar futebol-consumer.jar --benchmark-index [galeria] [consultas] [dim] [k]}
+     */
+    public static class IndexBenchmark {
+        public static void run(int gallerySize, int queries, int dim, int k) {
+            java.util.Random random = new java.util.Random(7);
+            int clusters = Math.max(1, gallerySize / 10);
+            float[][] centers = new float[clusters][dim];
+            for (float[] c : centers) for (int d = 0; d < dim; d++) c[d] = (float) random.nextGaussian();
+
+            float[][] gallery = new float[gallerySize][];
+            for (int i = 0; i < gallerySize; i++) gallery[i] = noisy(centers[random.nextInt(clusters)], 0.3, random);
+            float[][] queryVectors = new float[queries][];
+            for (int i = 0; i < queries; i++) queryVectors[i] = noisy(centers[random.nextInt(clusters)], 0.3, random);
+
+            System.out.printf("Galeria: %d vetores, dim %d, %d consultas, top-%d, kernel %s%n",
+                    gallerySize, dim, queries, k, DotKernel.INSTANCE.name());
+
+            double[][] galleryDouble = new double[gallerySize][];
+            for (int i = 0; i < gallerySize; i++) galleryDouble[i] = toDouble(gallery[i]);
+            long start = System.nanoTime();
+            for (float[] q : queryVectors) {
+                double[] qd = toDouble(q);
+                double best = -1;
+                for (double[] g : galleryDouble) best = Math.max(best, cosine(qd, g));
+            }
+            System.out.printf("linear (double[], normas por comparação): %.1f µs/consulta%n",
+                    (System.nanoTime() - start) / 1000.0 / queries);
+
+            FlatIndex flat = new FlatIndex();
+            for (int i = 0; i < gallerySize; i++) flat.add(Integer.toString(i), gallery[i]);
+            List<java.util.Set<String>> truth = new ArrayList<>();
+            start = System.nanoTime();
+            for (float[] q : queryVectors) {
+                java.util.Set<String> ids = new java.util.HashSet<>();
+                for (Match match : flat.search(q, k)) ids.add(match.getLabel());
+                truth.add(ids);
+            }
+            System.out.printf("flat (pré-normalizado): %.1f µs/consulta, recall 1.000%n",
+                    (System.nanoTime() - start) / 1000.0 / queries);
+
+            FlatIndex flatNd4j = new FlatIndex(true);
+            for (int i = 0; i < gallerySize; i++) flatNd4j.add(Integer.toString(i), gallery[i]);
+            flatNd4j.matrix();
+            start = System.nanoTime();
+            for (float[] q : queryVectors) flatNd4j.search(q, k);
+            System.out.printf("flat nd4j (matriz-vetor): %.1f µs/consulta%n",
+                    (System.nanoTime() - start) / 1000.0 / queries);
+            start = System.nanoTime();
+            flatNd4j.searchBatch(queryVectors, k);
+            System.out.printf("flat nd4j (lote de %d consultas): %.1f µs/consulta%n",
+                    queries, (System.nanoTime() - start) / 1000.0 / queries);
+
+            HnswIndex hnsw = new HnswIndex(Env.plain().getInt("HNSW_M", 16), Env.plain().getInt("HNSW_EF_CONSTRUCTION", 200), 16);
+            start = System.nanoTime();
+            for (int i = 0; i < gallerySize; i++) hnsw.add(Integer.toString(i), gallery[i]);
+            System.out.printf("hnsw construção: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+            for (int ef : new int[]{16, 32, 64, 128, 256}) {
+                hnsw.setEfSearch(ef);
+                int hits = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < queries; i++) {
+                    for (Match match : hnsw.search(queryVectors[i], k)) {
+                        if (truth.get(i).contains(match.getLabel())) hits++;
+                    }
+                }
+                System.out.printf("hnsw efSearch=%d: %.1f µs/consulta, recall %.3f%n",
+                        ef, (System.nanoTime() - start) / 1000.0 / queries, hits / (double) (queries * k));
+            }
+        }
+
+        private static float[] noisy(float[] center, double sigma, java.util.Random random) {
+            float[] v = new float[center.length];
+            for (int d = 0; d < v.length; d++) v[d] = center[d] + (float) (random.nextGaussian() * sigma);
+            return v;
+        }
+
+        private static double[] toDouble(float[] v) {
+            double[] d = new double[v.length];
+            for (int i = 0; i < v.length; i++) d[i] = v[i];
+            return d;
+        }
+
+        private static double cosine(double[] a, double[] b) {
+            double dot = 0, normA = 0, normB = 0;
+            for (int i = 0; i < a.length; i++) {
+                dot += a[i] * b[i];
+                normA += a[i] * a[i];
+                normB += b[i] * b[i];
+            }
+            return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+        }
+    }
+
+    /**
+     * Estado da galeria em uso: índice construído e versão dos arquivos. O índice não é
+     * alterado depois de publicado; inclusões trabalham sobre uma {@link EmbeddingIndex#copy()}.
+     */
+    static final class GallerySnapshot {
+        final EmbeddingIndex index;
+        final String stamp;
+
+        GallerySnapshot(EmbeddingIndex index, String stamp) {
+            this.index = index;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Comando administrativo recebido na fila de controle da galeria.
+     * {@code {"acao":"recarregar"}} ou
+     * {@code {"acao":"adicionar","rotulo":"...","embedding":[...]}} /
+     * {@code {"acao":"adicionar","rotulo":"...","dadosImagem":"<base64>"}}.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class GalleryCommand {
+        @JsonProperty("acao") private String action;
+        @JsonProperty("rotulo") private String label;
+        @JsonProperty("embedding") private float[] embedding;
+        @JsonProperty("dadosImagem") private byte[] imageData;
+
+        public String getAction() { return action; }
+        public String getLabel() { return label; }
+        public float[] getEmbedding() { return embedding; }
+        public byte[] getImageData() { return imageData; }
+    }
+
+    /**
+     * Compara os modos de {@link ModelPrecision} com o {@code fp32} nas mesmas imagens:
+     * vazão, memória dos parâmetros, concordância do time previsto e diferença média
+     * da similaridade com a galeria. Sem diretório, usa imagens sintéticas.
+     * Uso: {@code java -jar futebol-consumer.jar --benchmark-precision [imagens] [lote] [diretorio]}
+     */
+    public static class PrecisionBenchmark {
+        public static void run(int count, int batchSize, Path imagesDir) {
+            EmbeddingAnalyzer base = benchmarkAnalyzer();
+            List<byte[]> images = PrecisionReport.loadImages(imagesDir, count);
+            if (images.isEmpty()) images = BenchmarkSupport.syntheticImages(count, 256);
+            InferenceBenchmark.precision(images, batchSize, base::withPrecision, Match::getLabel, Match::getScore);
+            base.shutdown();
+        }
+    }
+
+    public static class EmbeddingAnalyzer implements InferenceBenchmark.Model<Match> {
+        private final AtomicReference<GallerySnapshot> gallery;
+        private final Path galleryFile;
+        private final Path embeddingsFile;
+        private final Path labelsFile;
+        private final String indexType;
+        private final Env env;
+        private final ScheduledExecutorService galleryExecutor;
+        private volatile String galleryStamp;
+        private final ComputationGraph model;
+        private final ModelPrecision precision;
+        private final Object modelLock;
+        private final DecodeStage decoder;
+        private final ImagePreprocessor preprocessor;
+        private final AtomicLong preprocessNanos;
+        private final AtomicLong preprocessCount;
+        private final ResultCache<Match> cache;
+        private final Metrics metrics;
+
+        public EmbeddingAnalyzer(String galleryFile, String embeddingsFile, String labelsFile, String modelFile,
+                                 int decodeThreads, String indexType, ResultCache<Match> cache, Metrics metrics) {
+            this(galleryFile, embeddingsFile, labelsFile, modelFile,
+                    new DecodeStage("decode-times", decodeThreads, false, metrics), indexType, Env.plain(), cache, metrics);
+        }
+
+        /** @param env configuração do serviço: índice ({@code FLAT_SCORING}, {@code HNSW_*}) e {@code GALLERY_VERIFY_CHECKSUM} */
+        public EmbeddingAnalyzer(String galleryFile, String embeddingsFile, String labelsFile, String modelFile,
+                                 DecodeStage decoder, String indexType, Env env, ResultCache<Match> cache,
+                                 Metrics metrics) {
+            this.gallery = new AtomicReference<>();
+            this.metrics = metrics;
+            this.modelLock = new Object();
+            this.precision = ModelPrecision.FP32;
+            this.preprocessor = new ImagePreprocessor(224, 224, 3);
+            this.preprocessNanos = new AtomicLong();
+            this.preprocessCount = new AtomicLong();
+            try {
+                this.cache = cache;
+                this.galleryFile = Paths.get(galleryFile);
+                this.embeddingsFile = Paths.get(embeddingsFile);
+                this.labelsFile = Paths.get(labelsFile);
+                this.indexType = indexType;
+                this.env = env;
+                this.galleryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "gallery-reload");
+                    t.setDaemon(true);
+                    return t;
+                });
+                loadGallery();
+
+                model = KerasModelImport.importKerasModelAndWeights(modelFile, false);
+                System.out.println("Modelo MobileNetV2 carregado com sucesso!");
+                this.decoder = decoder;
+
+            } catch (Exception e) {
+                throw new RuntimeException("Erro ao inicializar EmbeddingAnalyzer", e);
+            }
+        }
+
+        private EmbeddingAnalyzer(EmbeddingAnalyzer base, ComputationGraph model, ModelPrecision precision) {
+            this.gallery = base.gallery;
+            this.galleryFile = base.galleryFile;
+            this.embeddingsFile = base.embeddingsFile;
+            this.labelsFile = base.labelsFile;
+            this.indexType = base.indexType;
+            this.env = base.env;
+            this.galleryExecutor = base.galleryExecutor;
+            this.galleryStamp = base.galleryStamp;
+            this.model = model;
+            this.precision = precision;
+            this.modelLock = model == base.model ? base.modelLock : new Object();
+            this.decoder = base.decoder;
+            this.preprocessor = base.preprocessor;
+            this.preprocessNanos = base.preprocessNanos;
+            this.preprocessCount = base.preprocessCount;
+            this.cache = base.cache;
+            this.metrics = base.metrics;
+        }
+
+        /**
+         * Analisador para um worker: compartilha galeria, cache, pool de decodificação
+         * e métricas, e usa uma cópia própria do grafo ({@code replicate}) ou o mesmo
+         * grafo, serializado por lock. Recarga da galeria e shutdown ficam no original.
+         */
+        public EmbeddingAnalyzer forWorker(boolean replicate) {
+            return new EmbeddingAnalyzer(this, replicate ? model.clone() : model, precision);
+        }
+
+        /**
+         * Analisador com o grafo convertido para {@code target}, compartilhando galeria,
+         * cache e pool de decodificação. As réplicas criadas a partir dele herdam a precisão.
+         */
+        public EmbeddingAnalyzer withPrecision(ModelPrecision target) {
+            if (target == precision) return this;
+            ComputationGraph converted = model.convertDataType(target.dataType());
+            System.out.printf("Grafo convertido para %s: %d parâmetros, %.1f MB por réplica\n",
+                    target.label(), converted.numParams(), target.parameterBytes(converted.numParams()) / (1024.0 * 1024.0));
+            return new EmbeddingAnalyzer(this, converted, target);
+        }
+
+        /** Memória dos parâmetros desta réplica. */
+        @Override
+        public long parameterBytes() {
+            return precision.parameterBytes(model.numParams());
+        }
+
+        /**
+         * Verifica periodicamente se os arquivos da galeria mudaram e, nesse caso,
+         * recarrega em segundo plano. As buscas continuam usando o snapshot anterior
+         * até a troca atômica.
+         */
+        public void watchGallery(long intervalSeconds) {
+            if (intervalSeconds <= 0) return;
+            galleryExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    if (!currentStamp().equals(galleryStamp)) {
+                        System.out.println("Arquivos da galeria alterados, recarregando...");
+                        loadGallery();
+                    }
+                } catch (Exception e) {
+                    System.err.println("Erro ao recarregar galeria: " + e.getMessage());
+                }
+            }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+
+        /** Agenda a recarga completa da galeria a partir dos arquivos. */
+        public CompletableFuture<Integer> reloadGallery() {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return loadGallery();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, galleryExecutor);
+        }
+
+        /**
+         * Agenda a inclusão de uma entrada na galeria em memória: a entrada é inserida em
+         * uma cópia do índice atual (sem reconstruí-lo), publicada como novo snapshot. Do
+         * cache saem só os resultados que a nova entrada pode superar. A entrada é perdida
+         * na próxima recarga dos arquivos.
+         */
+        public CompletableFuture<Integer> addGalleryEntry(String label, float[] vector) {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                GallerySnapshot current = gallery.get();
+                EmbeddingIndex index = current.index.copy();
+                index.add(label, vector);
+                // Snapshot antes da nova geração do cache: um lote que leu a geração anterior
+                // pode ter buscado na galeria antiga, e seu resultado é recusado pelo cache.
+                gallery.set(new GallerySnapshot(index, current.stamp));
+                float[] normalized = EmbeddingIndex.normalize(vector);
+                int invalidated = cache.invalidate(match -> match.couldChange(normalized));
+                System.out.printf("Entrada '%s' adicionada à galeria em %.1f ms: %d embeddings, %d resultados em cache invalidados\n",
+                        label, (System.nanoTime() - start) / 1e6, index.size(), invalidated);
+                return index.size();
+            }, galleryExecutor);
+        }
+
+        /** Como {@link #addGalleryEntry(String, float[])}, calculando o embedding da imagem. */
+        public CompletableFuture<Integer> addGalleryEntry(String label, byte[] imageBytes) {
+            return CompletableFuture.supplyAsync(() -> embed(imageBytes), decoder.executor())
+                    .thenCompose(vector -> addGalleryEntry(label, vector));
+        }
+
+        public int gallerySize() {
+            return gallery.get().index.size();
+        }
+
+        /**
+         * Carrega a fonte mais recente: a galeria binária ou, se o par texto/rótulos foi
+         * alterado depois dela (ou ela não existe), o par texto, que então regenera a
+         * binária. O stamp é lido depois da regeneração, para que a própria escrita da
+         * binária não dispare outra recarga.
+         */
+        private int loadGallery() throws IOException {
+            long start = System.nanoTime();
+            GalleryFile contents;
+            if (Files.exists(galleryFile) && !textNewerThanBinary()) {
+                contents = GalleryFile.read(galleryFile, !env.isDisabled("GALLERY_VERIFY_CHECKSUM"));
+            } else {
+                System.out.println((Files.exists(galleryFile) ? "Galeria texto mais recente que a binária"
+                        : "Galeria binária não encontrada") + ", lendo " + embeddingsFile);
+                contents = GalleryFile.readText(embeddingsFile, labelsFile).normalize();
+                try {
+                    contents.write(galleryFile);
+                    System.out.println("Galeria binária regenerada: " + galleryFile);
+                } catch (IOException e) {
+                    System.err.println("Não foi possível regenerar " + galleryFile + ": " + e.getMessage());
+                }
+            }
+            String stamp = currentStamp();
+
+            int size = publish(contents.normalize(), stamp);
+            System.out.printf("Galeria carregada: %d embeddings em %.1f ms (índice %s, kernel %s)\n",
+                    size, (System.nanoTime() - start) / 1e6, indexType, DotKernel.INSTANCE.name());
+            return size;
+        }
+
+        private int publish(GalleryFile contents, String stamp) {
+            EmbeddingIndex index = EmbeddingIndex.create(indexType, env);
+            index.addAll(contents.getLabels(), contents.getVectors(), contents.getDim(), true);
+            gallery.set(new GallerySnapshot(index, stamp));
+            galleryStamp = stamp;
+            // Rótulos em cache podem ter mudado com a nova galeria; lotes ainda na galeria
+            // antiga não gravam mais no cache (nova geração).
+            cache.clear();
+            return index.size();
+        }
+
+        private boolean textNewerThanBinary() {
+            try {
+                long binary = Files.getLastModifiedTime(galleryFile).toMillis();
+                return Files.getLastModifiedTime(embeddingsFile).toMillis() > binary
+                        || Files.getLastModifiedTime(labelsFile).toMillis() > binary;
+            } catch (IOException e) {
+                // Sem o par texto completo, a binária é a única fonte.
+                return false;
+            }
+        }
+
+        /** Identifica a versão dos arquivos da galeria pela data de modificação e tamanho. */
+        private String currentStamp() {
+            StringBuilder sb = new StringBuilder();
+            for (Path p : new Path[]{galleryFile, embeddingsFile, labelsFile}) {
+                try {
+                    sb.append(Files.getLastModifiedTime(p).toMillis()).append(':').append(Files.size(p)).append(';');
+                } catch (IOException e) {
+                    sb.append("-;");
+                }
+            }
+            return sb.toString();
+        }
+
+        public String analyze(byte[] imageBytes) {
+            return analyzeBatch(List.of(imageBytes)).get(0).getLabel();
+        }
+
+        /**
+         * Responde pelo cache as imagens já vistas (mesmo conteúdo) e envia as demais
+         * ao modelo em um único lote. Resultados "ERRO" não são armazenados.
+         */
+        @Override
+        public List<Match> analyzeBatch(List<byte[]> imagesBytes) {
+            return analyzeBatch(imagesBytes, new StageTimings());
+        }
+
+        /** Como {@link #analyzeBatch(List)}, acumulando em {@code timings} a duração de cada etapa do lote. */
+        public List<Match> analyzeBatch(List<byte[]> imagesBytes, StageTimings timings) {
+            return complete(decodeAsync(imagesBytes).join(), timings);
+        }
+
+        /** Primeira etapa do pipeline: consulta o cache e decodifica as demais imagens em paralelo. */
+        public CompletableFuture<DecodeStage.Batch<Match>> decodeAsync(List<byte[]> imagesBytes) {
+            return decoder.decode(imagesBytes, cache, this::decode);
+        }
+
+        /** Segunda etapa: embeddings e busca na galeria para as imagens que não estavam no cache. */
+        public List<Match> complete(DecodeStage.Batch<Match> batch, StageTimings timings) {
+            return batch.complete(timings, images -> infer(images, timings), m -> !"ERRO".equals(m.getLabel()));
+        }
+
+        public String cacheStats() {
+            return cache.stats();
+        }
+
+        public long cacheHits() { return cache.hits(); }
+
+        public long cacheMisses() { return cache.misses(); }
+
+        public long cacheEvictions() { return cache.evictions(); }
+
+        public int cacheEntries() { return cache.size(); }
+
+        public long cacheBytes() { return cache.bytes(); }
+
+        /**
+         * Calcula os embeddings das imagens já decodificadas em uma única chamada do grafo
+         * com um tensor {@code [N,224,224,3]}; imagens {@code null} (falha na decodificação)
+         * recebem "ERRO". A busca por similaridade continua sendo feita por imagem.
+         */
+        private List<Match> infer(List<BufferedImage> decoded, StageTimings timings) {
+            List<Match> results = new ArrayList<>(decoded.size());
+            for (BufferedImage img : decoded) results.add(img == null ? new Match("ERRO", 0.0) : null);
+
+            int valid = (int) decoded.stream().filter(img -> img != null).count();
+            if (valid == 0) return results;
+
+            try {
+                long start = System.nanoTime();
+                float[] data = preprocessor.buffer(valid);
+                int row = 0;
+                for (BufferedImage img : decoded) {
+                    if (img == null) continue;
+                    preprocessor.write(img, data, row++);
+                }
+                INDArray input = preprocessor.toINDArray(data, valid);
+                long preprocessed = System.nanoTime() - start;
+                preprocessNanos.addAndGet(preprocessed);
+                preprocessCount.addAndGet(valid);
+                metrics.record("preprocess", preprocessed, valid);
+                timings.add("preprocess", preprocessed);
+
+                INDArray embeddings;
+                long inferenceStart = System.nanoTime();
+                synchronized (modelLock) {
+                    embeddings = model.outputSingle(precision.input(input));
+                }
+                long inferenceNanos = System.nanoTime() - inferenceStart;
+                metrics.record("inference", inferenceNanos, valid);
+                timings.add("inference", inferenceNanos);
+                float[][] vectors = embeddings.reshape(valid, embeddings.length() / valid).toFloatMatrix();
+                long searchStart = System.nanoTime();
+                List<List<Match>> matches = gallery.get().index.searchBatch(vectors, 1);
+                long searchNanos = System.nanoTime() - searchStart;
+                metrics.record("search", searchNanos, valid);
+                timings.add("search", searchNanos);
+                row = 0;
+                for (int i = 0; i < results.size(); i++) {
+                    if (decoded.get(i) == null) continue;
+                    List<Match> best = matches.get(row);
+                    results.set(i, best.isEmpty() ? new Match("ERRO", 0.0)
+                            : best.get(0).withQuery(EmbeddingIndex.normalize(vectors[row])));
+                    row++;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                for (int i = 0; i < results.size(); i++) {
+                    if (results.get(i) == null) results.set(i, new Match("ERRO", 0.0));
+                }
+            }
+            return results;
+        }
+
+        /** Tempo médio de conversão imagem→tensor por mensagem, em microssegundos. */
+        public double averagePreprocessMicros() {
+            long count = preprocessCount.get();
+            return count == 0 ? 0.0 : preprocessNanos.get() / 1000.0 / count;
+        }
+
+        public void shutdown() {
+            galleryExecutor.shutdownNow();
+            decoder.shutdown();
+        }
+
+        private float[] embed(byte[] imageBytes) {
+            try {
+                float[] data = preprocessor.buffer(1);
+                preprocessor.write(decode(imageBytes), data, 0);
+                INDArray embedding;
+                synchronized (modelLock) {
+                    embedding = model.outputSingle(precision.input(preprocessor.toINDArray(data, 1)));
+                }
+                return embedding.toFloatVector();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private BufferedImage decode(byte[] imageBytes) throws IOException {
+            return resizeImage(decoder.read(imageBytes, 224, 224), 224, 224);
+        }
+
+        /** Os {@code k} rótulos mais similares da galeria, com a similaridade de cosseno. */
+        public List<Match> search(float[] embedding, int k) {
+            return gallery.get().index.search(embedding, k);
+        }
+
+        static BufferedImage resizeImage(BufferedImage original, int width, int height) {
+            BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = resized.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(original, 0, 0, width, height, null);
+            g.dispose();
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.exemplo.times;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Formato GAL1 de {@link Main.GalleryFile}: ida e volta pelo disco e arquivos corrompidos. */
+class GalleryFileTest {
+    private static final List<String> LABELS = List.of("Flamengo", "São Paulo", "Grêmio");
+    private static final float[] VECTORS = {
+            1, 2, 3, 4,
+            -1, 0, 0.5f, 2,
+            0, 0, 3, 0,
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeThenReadKeepsLabelsAndNormalizedVectors() throws IOException {
+        Path file = dir.resolve("galeria.bin");
+        new Main.GalleryFile(LABELS, VECTORS, 4, false).write(file);
+
+        Main.GalleryFile read = Main.GalleryFile.read(file, true);
+
+        assertEquals(LABELS, read.getLabels());
+        assertEquals(4, read.getDim());
+        assertEquals(3, read.getCount());
+        assertTrue(read.isNormalized());
+        assertArrayEquals(new Main.GalleryFile(LABELS, VECTORS, 4, false).normalize().getVectors(),
+                read.getVectors(), 1e-6f);
+    }
+
+    @Test
+    void corruptedByteFailsTheChecksum() throws IOException {
+        Path file = dir.resolve("galeria.bin");
+        new Main.GalleryFile(LABELS, VECTORS, 4, false).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(file, bytes);
+
+        IOException error = assertThrows(IOException.class, () -> Main.GalleryFile.read(file, true));
+        assertTrue(error.getMessage().contains("Checksum"), error.getMessage());
+    }
+
+    @Test
+    void badMagicIsRejectedEvenWithoutChecksum() throws IOException {
+        Path file = dir.resolve("galeria.bin");
+        new Main.GalleryFile(LABELS, VECTORS, 4, false).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[0] = 'X';
+        Files.write(file, bytes);
+
+        IOException error = assertThrows(IOException.class, () -> Main.GalleryFile.read(file, false));
+        assertTrue(error.getMessage().contains("inválido"), error.getMessage());
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = dir.resolve("galeria.bin");
+        new Main.GalleryFile(LABELS, VECTORS, 4, false).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, 40));
+
+        assertThrows(IOException.class, () -> Main.GalleryFile.read(file, false));
+    }
+}
@@ -0,0 +1,712 @@
+package com.exemplo;
+
+import com.exemplo.comum.Deadlines;
+import com.exemplo.comum.Env;
+import com.exemplo.comum.ImageMessage;
+import com.exemplo.comum.Metrics;
+import com.exemplo.comum.RabbitConnections;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.*;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+class Main {
+    private static final String EXCHANGE_NAME = "image_analysis_exchange";
+    private static final String FACES_DIR = "/app/database_face/";
+    private static final String FOOTBALL_DIR = "/app/database_futebol/";
+
+    private Connection connection;
+    private Channel channel;
+    private ObjectMapper objectMapper;
+    private List<Path> faceImages;
+    private List<Path> footballImages;
+    private Random random;
+    private final boolean binaryFormat;
+    private final boolean corpusMode;
+    private ImageCorpus faceCorpus;
+    private ImageCorpus footballCorpus;
+    private final long idPrefix = new Random().nextLong();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final int publisherThreads;
+    private final int maxInFlight;
+    private final LoadProfile loadProfile;
+    private final int maxPriority;
+    private final long messageTtlMs;
+    private final double highPriorityFraction;
+    private final PublisherStats stats = new PublisherStats();
+    private final Metrics metrics = Metrics.global();
+    private final List<ConfirmTracker> trackers = new CopyOnWriteArrayList<>();
+    private final List<Channel> publisherChannels = new CopyOnWriteArrayList<>();
+
+    public Main() {
+        Env env = Env.plain();
+        this.publisherThreads = Math.max(1, env.getInt("PUBLISHER_THREADS", 1));
+        this.maxInFlight = Math.max(1, env.getInt("MAX_IN_FLIGHT", 1000));
+        this.loadProfile = LoadProfile.fromEnv(env);
+        this.maxPriority = env.getInt("MAX_PRIORITY", Deadlines.DEFAULT_MAX_PRIORITY);
+        this.messageTtlMs = env.getInt("MESSAGE_TTL_MS", 0);
+        this.highPriorityFraction = env.getDouble("HIGH_PRIORITY_FRACTION", 0);
+        this.binaryFormat = !"json".equalsIgnoreCase(env.get("MESSAGE_FORMAT", "binary"));
+        this.corpusMode = "memory".equalsIgnoreCase(env.get("IMAGE_CORPUS", "disk"));
+        this.objectMapper = new ObjectMapper();
+        this.faceImages = new ArrayList<>();
+        this.footballImages = new ArrayList<>();
+        this.random = new Random();
+    }
+
+    public void connectRabbitMQ() throws IOException, TimeoutException {
+        connection = RabbitConnections.connect("gerador-mensagens");
+        channel = connection.createChannel();
+        channel.exchangeDeclare(EXCHANGE_NAME, BuiltinExchangeType.TOPIC, true);
+
+        // Queues separadas, com prioridades (os consumidores declaram os mesmos argumentos)
+        Map<String, Object> queueArgs = Deadlines.queueArguments(maxPriority);
+        channel.queueDeclare("face_queue", true, false, false, queueArgs);
+        channel.queueBind("face_queue", EXCHANGE_NAME, "face");
+
+        channel.queueDeclare("team_queue", true, false, false, queueArgs);
+        channel.queueBind("team_queue", EXCHANGE_NAME, "team");
+
+        System.out.println("Formato das mensagens: " + (binaryFormat ? "binário" : "JSON"));
+        if (messageTtlMs > 0 || highPriorityFraction > 0) {
+            System.out.printf("Prazo por mensagem: %s | alta prioridade (%d): %.0f%% das mensagens\n",
+                    messageTtlMs > 0 ? messageTtlMs + " ms" : "sem prazo", maxPriority, highPriorityFraction * 100);
+        }
+    }
+
+    public void loadImages() throws IOException {
+        loadDirImagesRecursive(FACES_DIR, faceImages, Arrays.asList(".jpg", ".png"));
+        loadDirImagesRecursive(FOOTBALL_DIR, footballImages, Arrays.asList(".jpg", ".png"));
+
+        if (faceImages.isEmpty() && footballImages.isEmpty()) {
+            throw new IOException("Nenhuma imagem encontrada nos diretórios.");
+        }
+
+        System.out.println("✅ Carregadas " + faceImages.size() + " imagens de rostos");
+        System.out.println("✅ Carregadas " + footballImages.size() + " imagens de futebol");
+
+        if (corpusMode) {
+            long start = System.nanoTime();
+            faceCorpus = ImageCorpus.load(faceImages, "face", binaryFormat, objectMapper);
+            footballCorpus = ImageCorpus.load(footballImages, "team", binaryFormat, objectMapper);
+            System.out.printf("✅ Corpus em memória: %d mensagens pré-codificadas (%.1f MB) em %d ms\n",
+                    faceCorpus.size() + footballCorpus.size(),
+                    (faceCorpus.bytes() + footballCorpus.bytes()) / (1024.0 * 1024.0),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void loadDirImagesRecursive(String dir, List<Path> list, List<String> exts) throws IOException {
+        Path path = Paths.get(dir);
+        if (Files.exists(path) && Files.isDirectory(path)) {
+            Files.walk(path)
+                 .filter(Files::isRegularFile)
+                 .filter(p -> exts.stream().anyMatch(ext -> p.getFileName().toString().toLowerCase().endsWith(ext)))
+                 .forEach(list::add);
+        }
+    }
+
+    /**
+     * Inicia {@code PUBLISHER_THREADS} threads, cada uma com seu canal em modo de
+     * publisher confirms, e bloqueia enquanto elas enviam.
+     */
+    public void startSending() throws IOException, InterruptedException {
+        System.out.printf("Iniciando envio de mensagens: %d thread(s), até %d sem confirmação por canal, %s\n",
+                publisherThreads, maxInFlight, loadProfile);
+
+        Pacer pacer = new Pacer(loadProfile);
+        metrics.describe("messages_sent", "Mensagens publicadas");
+        metrics.describe("messages_nacked", "Mensagens recusadas pelo broker (nack)");
+        metrics.describe("confirms_lost", "Confirmações perdidas em reconexões");
+        metrics.gauge("messages_in_flight", "Mensagens publicadas ainda sem confirmação",
+                () -> trackers.stream().mapToInt(ConfirmTracker::inFlight).sum());
+        metrics.gauge("target_rate", "Taxa alvo do perfil de carga em msg/s (0 = sem limite)", pacer::targetRate);
+        startReporting(pacer, Env.plain().getInt("REPORT_INTERVAL_S", 10));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < publisherThreads; i++) {
+            Channel publisherChannel = connection.createChannel();
+            publisherChannel.confirmSelect();
+            ConfirmTracker tracker = new ConfirmTracker(maxInFlight, stats);
+            publisherChannel.addConfirmListener(tracker);
+            if (publisherChannel instanceof Recoverable) {
+                ((Recoverable) publisherChannel).addRecoveryListener(new RecoveryListener() {
+                    @Override
+                    public void handleRecovery(Recoverable recoverable) { tracker.reset(); }
+
+                    @Override
+                    public void handleRecoveryStarted(Recoverable recoverable) {}
+                });
+            }
+            trackers.add(tracker);
+            publisherChannels.add(publisherChannel);
+
+            Thread t = new Thread(() -> sendLoop(publisherChannel, tracker, pacer), "publisher-" + i);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) t.join();
+    }
+
+    private void sendLoop(Channel publisherChannel, ConfirmTracker tracker, Pacer pacer) {
+        boolean face = true;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Path> images = face ? faceImages : footballImages;
+                ImageCorpus corpus = face ? faceCorpus : footballCorpus;
+                String routingKey = face ? "face" : "team";
+                face = !face;
+                if (images.isEmpty()) continue;
+
+                pacer.awaitSlot();
+                MensagemImagem msg = corpus == null ? createMessage(images, routingKey) : null;
+                tracker.beforePublish();
+                long seqNo = -1;
+                long publishStart = System.nanoTime();
+                boolean sent = false;
+                try {
+                    seqNo = publisherChannel.getNextPublishSeqNo();
+                    tracker.published(seqNo, System.nanoTime());
+                    if (msg != null) {
+                        publish(publisherChannel, routingKey, msg);
+                    } else {
+                        corpus.pick().publish(publisherChannel, EXCHANGE_NAME, routingKey,
+                                nextId(), System.currentTimeMillis(), messageTtlMs, nextPriority());
+                    }
+                    sent = true;
+                } finally {
+                    // Qualquer falha (inclusive RuntimeException) devolve a vaga da janela.
+                    if (!sent) tracker.settleFailed(seqNo);
+                }
+                metrics.recordSince("publish", publishStart, 1);
+                stats.sent();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("Erro ao enviar mensagem: " + e.getMessage());
+                try { Thread.sleep(1000); } catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
+            }
+        }
+    }
+
+    /** Relatório periódico: taxa obtida vs. alvo e percentis de latência de confirmação. */
+    private void startReporting(Pacer pacer, int intervalSeconds) {
+        if (intervalSeconds <= 0) return;
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "publisher-stats");
+            t.setDaemon(true);
+            return t;
+        });
+        long[] last = new long[2];
+        reporter.scheduleAtFixedRate(() -> {
+            long sent = stats.sent.sum();
+            long confirmed = stats.confirmed.sum();
+            double[] p = stats.drainPercentiles(50, 95, 99);
+            int inFlight = trackers.stream().mapToInt(ConfirmTracker::inFlight).sum();
+            double target = pacer.targetRate();
+            System.out.printf("Enviadas: %.1f msg/s (alvo %s) | confirmadas: %.1f msg/s | nacks: %d | perdidas: %d"
+                            + " | em voo: %d | confirmação p50/p95/p99: %.1f/%.1f/%.1f ms\n",
+                    (sent - last[0]) / (double) intervalSeconds,
+                    target > 0 ? String.format("%.1f", target) : "sem limite",
+                    (confirmed - last[1]) / (double) intervalSeconds,
+                    stats.nacked.sum(), stats.lost.sum(), inFlight, p[0], p[1], p[2]);
+            last[0] = sent;
+            last[1] = confirmed;
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * No formato binário o corpo é a imagem original e os metadados vão nas
+     * propriedades AMQP ({@code messageId}, {@code type}, {@code timestamp} e o
+     * cabeçalho {@code nomeArquivo}). No formato JSON o corpo é a mensagem
+     * serializada com a imagem em base64, identificada por {@code application/json}.
+     * Nos dois formatos, prazo ({@code deadlineMs}) e prioridade vão nas propriedades.
+     */
+    private void publish(Channel channel, String routingKey, MensagemImagem msg) throws IOException {
+        if (binaryFormat) {
+            channel.basicPublish(EXCHANGE_NAME, routingKey,
+                    schedule(binaryProperties(msg), msg.getTimestamp()), msg.getImageData());
+        } else {
+            AMQP.BasicProperties props = MessageProperties.PERSISTENT_BASIC.builder()
+                    .contentType(ImageMessage.CONTENT_TYPE_JSON)
+                    .build();
+            channel.basicPublish(EXCHANGE_NAME, routingKey,
+                    schedule(props, msg.getTimestamp()), objectMapper.writeValueAsBytes(msg));
+        }
+    }
+
+    private AMQP.BasicProperties schedule(AMQP.BasicProperties props, long timestamp) {
+        int priority = nextPriority();
+        if (messageTtlMs <= 0 && priority <= 0) return props;
+        Map<String, Object> headers = props.getHeaders() != null ? new HashMap<>(props.getHeaders()) : new HashMap<>();
+        AMQP.BasicProperties.Builder builder = props.builder();
+        Deadlines.apply(builder, headers, timestamp, messageTtlMs, priority);
+        return builder.headers(headers).build();
+    }
+
+    /** {@code MAX_PRIORITY} para uma fração {@code HIGH_PRIORITY_FRACTION} das mensagens, 0 para as demais. */
+    private int nextPriority() {
+        if (highPriorityFraction <= 0 || maxPriority <= 0) return 0;
+        return ThreadLocalRandom.current().nextDouble() < highPriorityFraction ? maxPriority : 0;
+    }
+
+    static AMQP.BasicProperties binaryProperties(MensagemImagem msg) {
+        return ImageMessage.binaryProperties(msg.getId(), msg.getType(), msg.getFileName(), msg.getTimestamp());
+    }
+
+    /** Id no formato UUID a partir de um prefixo aleatório e um contador, sem SecureRandom por envio. */
+    private String nextId() {
+        return new UUID(idPrefix, idSequence.incrementAndGet()).toString();
+    }
+
+    private MensagemImagem createMessage(List<Path> images, String type) {
+        MensagemImagem msg = new MensagemImagem();
+        msg.setId(UUID.randomUUID().toString());
+        msg.setType(type);
+        msg.setTimestamp(System.currentTimeMillis());
+
+        Path imgPath = images.get(random.nextInt(images.size()));
+        msg.setFileName(imgPath.toAbsolutePath().toString());
+
+        try {
+            msg.setImageData(Files.readAllBytes(imgPath));
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler imagem: " + imgPath, e);
+        }
+
+        return msg;
+    }
+
+    /**
+     * Grava cada imagem carregada uma vez (rostos, depois futebol) em {@code output},
+     * uma mensagem JSON por linha ({@code .gz} comprimido), sem conectar ao broker.
+     * O arquivo serve de origem para o modo {@code --bulk} dos consumidores.
+     */
+    public void record(Path output) throws IOException {
+        long count = 0;
+        OutputStream file = Files.newOutputStream(output);
+        if (output.getFileName().toString().endsWith(".gz")) file = new GZIPOutputStream(file, 1 << 16);
+        try (OutputStream out = new BufferedOutputStream(file, 1 << 16)) {
+            for (String type : List.of("face", "team")) {
+                for (Path path : type.equals("face") ? faceImages : footballImages) {
+                    MensagemImagem msg = new MensagemImagem();
+                    msg.setId(nextId());
+                    msg.setType(type);
+                    msg.setTimestamp(System.currentTimeMillis());
+                    msg.setFileName(path.toAbsolutePath().toString());
+                    msg.setImageData(Files.readAllBytes(path));
+                    out.write(objectMapper.writeValueAsBytes(msg));
+                    out.write('\n');
+                    count++;
+                }
+            }
+        }
+        System.out.printf("✅ %d mensagens gravadas em %s\n", count, output);
+    }
+
+    public void close() {
+        for (Channel publisherChannel : publisherChannels) {
+            try { if (publisherChannel.isOpen()) publisherChannel.close(); } catch (Exception ignored) {}
+        }
+        metrics.stop();
+        try { if (channel != null && channel.isOpen()) channel.close(); } catch (Exception ignored) {}
+        try { if (connection != null && connection.isOpen()) connection.close(); } catch (Exception ignored) {}
+    }
+
+    public static void main(String[] args) {
+        Main sender = new Main();
+        if (args.length > 1 && args[0].equals("--record")) {
+            try {
+                sender.loadImages();
+                sender.record(Paths.get(args[1]));
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(sender::close));
+
+        try {
+            sender.connectRabbitMQ();
+            Metrics.global().serve(Env.plain().getInt("METRICS_PORT", 8000));
+            sender.loadImages();
+            sender.startSending();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Acompanha os publisher confirms de um canal: guarda o instante de envio de cada
+     * número de sequência pendente e limita quantas mensagens podem estar sem
+     * confirmação ao mesmo tempo (janela), bloqueando o envio quando ela enche.
+     */
+    static class ConfirmTracker implements ConfirmListener {
+        private final ConcurrentSkipListMap<Long, Long> outstanding = new ConcurrentSkipListMap<>();
+        private final Semaphore window;
+        private final PublisherStats stats;
+
+        ConfirmTracker(int maxInFlight, PublisherStats stats) {
+            this.window = new Semaphore(maxInFlight);
+            this.stats = stats;
+        }
+
+        void beforePublish() throws InterruptedException {
+            window.acquire();
+        }
+
+        void published(long seqNo, long sentNanos) {
+            outstanding.put(seqNo, sentNanos);
+        }
+
+        /**
+         * Descarta uma sequência cujo envio falhou antes de chegar ao broker e devolve
+         * sua vaga; {@code seqNo} negativo quando a falha veio antes de {@link #published}.
+         */
+        void settleFailed(long seqNo) {
+            if (seqNo < 0 || outstanding.remove(seqNo) != null) window.release();
+        }
+
+        @Override
+        public void handleAck(long deliveryTag, boolean multiple) {
+            settle(deliveryTag, multiple, true);
+        }
+
+        @Override
+        public void handleNack(long deliveryTag, boolean multiple) {
+            settle(deliveryTag, multiple, false);
+        }
+
+        /** Após recuperação da conexão os números de sequência recomeçam; descarta os pendentes. */
+        void reset() {
+            int lost = outstanding.size();
+            outstanding.clear();
+            window.release(lost);
+            stats.lost(lost);
+        }
+
+        int inFlight() {
+            return outstanding.size();
+        }
+
+        private void settle(long deliveryTag, boolean multiple, boolean ack) {
+            long now = System.nanoTime();
+            Map<Long, Long> settled = multiple
+                    ? outstanding.headMap(deliveryTag, true)
+                    : outstanding.subMap(deliveryTag, true, deliveryTag, true);
+            int count = 0;
+            for (Iterator<Long> it = settled.values().iterator(); it.hasNext(); ) {
+                long sent = it.next();
+                it.remove();
+                count++;
+                if (ack) stats.confirmed(now - sent);
+            }
+            if (!ack) stats.nacked(count);
+            window.release(count);
+        }
+    }
+
+    /**
+     * Perfil de carga em malha aberta: taxa alvo (mensagens/s) em função do tempo.
+     * {@code constant}: {@code RATE}; {@code ramp}: de {@code RATE_START} a {@code RATE}
+     * em {@code RAMP_SECONDS}; {@code burst}: {@code BURST_RATE} por {@code BURST_SECONDS}
+     * a cada {@code BURST_PERIOD_S} e {@code RATE} no restante. Taxa 0 = sem limite.
+     */
+    static class LoadProfile {
+        private final String type;
+        private final double rate;
+        private final double rateStart;
+        private final double rampSeconds;
+        private final double burstRate;
+        private final double burstSeconds;
+        private final double burstPeriod;
+
+        LoadProfile(String type, double rate, double rateStart, double rampSeconds,
+                    double burstRate, double burstSeconds, double burstPeriod) {
+            this.type = type;
+            this.rate = rate;
+            this.rateStart = rateStart;
+            this.rampSeconds = rampSeconds;
+            this.burstRate = burstRate;
+            this.burstSeconds = burstSeconds;
+            this.burstPeriod = burstPeriod;
+        }
+
+        static LoadProfile fromEnv(Env env) {
+            return new LoadProfile(
+                    env.get("LOAD_PROFILE", "constant"),
+                    env.getDouble("RATE", 0),
+                    env.getDouble("RATE_START", 1),
+                    env.getDouble("RAMP_SECONDS", 60),
+                    env.getDouble("BURST_RATE", 0),
+                    env.getDouble("BURST_SECONDS", 5),
+                    env.getDouble("BURST_PERIOD_S", 30));
+        }
+
+        double rateAt(double elapsedSeconds) {
+            switch (type) {
+                case "ramp":
+                    if (elapsedSeconds >= rampSeconds) return rate;
+                    return rateStart + (rate - rateStart) * elapsedSeconds / rampSeconds;
+                case "burst":
+                    return elapsedSeconds % burstPeriod < burstSeconds ? burstRate : rate;
+                case "constant":
+                    return rate;
+                default:
+                    throw new IllegalArgumentException("Perfil de carga desconhecido: " + type);
+            }
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case "ramp": return String.format("rampa %.0f -> %.0f msg/s em %.0fs", rateStart, rate, rampSeconds);
+                case "burst": return String.format("rajadas de %.0f msg/s por %.0fs a cada %.0fs (base %.0f msg/s)",
+                        burstRate, burstSeconds, burstPeriod, rate);
+                default: return rate > 0 ? String.format("constante %.0f msg/s", rate) : "sem limite de taxa";
+            }
+        }
+    }
+
+    /**
+     * Distribui horários de envio entre as threads publicadoras segundo o perfil.
+     * Em malha aberta: se o envio atrasar, os horários seguintes não são adiados.
+     */
+    static class Pacer {
+        private final LoadProfile profile;
+        private final long start = System.nanoTime();
+        private final AtomicLong nextSlot = new AtomicLong(start);
+
+        Pacer(LoadProfile profile) {
+            this.profile = profile;
+        }
+
+        void awaitSlot() throws InterruptedException {
+            while (true) {
+                long slot = nextSlot.get();
+                double rate = profile.rateAt((slot - start) / 1e9);
+                if (rate <= 0) return;
+                long interval = (long) (1e9 / rate);
+                if (nextSlot.compareAndSet(slot, slot + interval)) {
+                    long wait = slot - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                    return;
+                }
+            }
+        }
+
+        double targetRate() {
+            return profile.rateAt((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /** Contadores e latências de confirmação agregados de todas as threads publicadoras. */
+    static class PublisherStats {
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder confirmed = new LongAdder();
+        private final LongAdder nacked = new LongAdder();
+        private final LongAdder lost = new LongAdder();
+        private final Recorder latencies = new Recorder(TimeUnit.MINUTES.toMicros(10), 3);
+        private final Metrics metrics = Metrics.global();
+
+        void sent() {
+            sent.increment();
+            metrics.increment("messages_sent");
+        }
+
+        void nacked(int count) {
+            nacked.add(count);
+            metrics.add("messages_nacked", count);
+        }
+
+        void lost(int count) {
+            lost.add(count);
+            metrics.add("confirms_lost", count);
+        }
+
+        void confirmed(long latencyNanos) {
+            confirmed.increment();
+            latencies.recordValue(Math.min(TimeUnit.MINUTES.toMicros(10), Math.max(0, latencyNanos / 1000)));
+            metrics.record("confirm", latencyNanos);
+        }
+
+        /** Percentis (ms) das latências de confirmação desde o último relatório. */
+        double[] drainPercentiles(double... percentiles) {
+            Histogram interval = latencies.getIntervalHistogram();
+            double[] result = new double[percentiles.length];
+            for (int i = 0; i < percentiles.length; i++) {
+                if (interval.getTotalCount() == 0) continue;
+                result[i] = interval.getValueAtPercentile(percentiles[i]) / 1000.0;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Corpus de imagens carregado uma única vez em memória. Cada entrada guarda o
+     * corpo da mensagem já codificado (binário ou JSON); no envio só o id e o
+     * timestamp são atualizados, sem leitura de disco nem nova serialização.
+     */
+    static class ImageCorpus {
+        private static final String ID_PLACEHOLDER = "00000000-0000-0000-0000-000000000000";
+        /** 13 dígitos: timestamps em milissegundos mantêm essa largura até o ano 2286. */
+        private static final long TIMESTAMP_PLACEHOLDER = 1_000_000_000_000L;
+
+        private final List<Entry> entries;
+        private final long bytes;
+
+        private ImageCorpus(List<Entry> entries, long bytes) {
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        static ImageCorpus load(List<Path> images, String type, boolean binaryFormat,
+                                ObjectMapper objectMapper) throws IOException {
+            List<Entry> entries = new ArrayList<>(images.size());
+            long bytes = 0;
+            for (Path path : images) {
+                MensagemImagem msg = new MensagemImagem();
+                msg.setId(ID_PLACEHOLDER);
+                msg.setType(type);
+                msg.setTimestamp(TIMESTAMP_PLACEHOLDER);
+                msg.setFileName(path.toAbsolutePath().toString());
+                msg.setImageData(Files.readAllBytes(path));
+                Entry entry = binaryFormat
+                        ? Entry.binary(msg)
+                        : Entry.json(objectMapper.writeValueAsBytes(msg));
+                entries.add(entry);
+                bytes += entry.body.length;
+            }
+            return new ImageCorpus(entries, bytes);
+        }
+
+        boolean isEmpty() { return entries.isEmpty(); }
+        int size() { return entries.size(); }
+        long bytes() { return bytes; }
+
+        Entry pick() {
+            return entries.get(ThreadLocalRandom.current().nextInt(entries.size()));
+        }
+
+        static final class Entry {
+            private final byte[] body;
+            private final AMQP.BasicProperties properties;
+            private final int idOffset;
+            private final int timestampOffset;
+            private final ThreadLocal<byte[]> buffer;
+
+            private Entry(byte[] body, AMQP.BasicProperties properties, int idOffset, int timestampOffset) {
+                this.body = body;
+                this.properties = properties;
+                this.idOffset = idOffset;
+                this.timestampOffset = timestampOffset;
+                this.buffer = idOffset < 0 ? null : ThreadLocal.withInitial(body::clone);
+            }
+
+            static Entry binary(MensagemImagem template) {
+                return new Entry(template.getImageData(), binaryProperties(template), -1, -1);
+            }
+
+            static Entry json(byte[] template) {
+                int idOffset = indexOf(template, ("\"id\":\"" + ID_PLACEHOLDER).getBytes(StandardCharsets.US_ASCII)) + 6;
+                int tsOffset = indexOf(template, ("\"timestamp\":" + TIMESTAMP_PLACEHOLDER).getBytes(StandardCharsets.US_ASCII)) + 12;
+                if (idOffset < 6 || tsOffset < 12) {
+                    throw new IllegalStateException("Campos id/timestamp não encontrados no modelo JSON");
+                }
+                AMQP.BasicProperties props = MessageProperties.PERSISTENT_BASIC.builder()
+                        .contentType(ImageMessage.CONTENT_TYPE_JSON)
+                        .build();
+                return new Entry(template, props, idOffset, tsOffset);
+            }
+
+            /**
+             * Publica a entrada com novo id, timestamp, prazo ({@code ttlMs} > 0) e
+             * prioridade ({@code priority} > 0). No formato JSON o corpo é um
+             * buffer por thread reaproveitado entre envios: o cliente (socket bloqueante,
+             * padrão da ConnectionFactory) já escreveu o frame quando basicPublish retorna.
+             */
+            void publish(Channel channel, String exchange, String routingKey, String id, long timestamp,
+                         long ttlMs, int priority) throws IOException {
+                if (buffer == null) {
+                    Map<String, Object> headers = new HashMap<>(properties.getHeaders());
+                    headers.put(ImageMessage.HEADER_TIMESTAMP_MS, timestamp);
+                    AMQP.BasicProperties.Builder builder = properties.builder()
+                            .messageId(id)
+                            .timestamp(new Date(timestamp));
+                    Deadlines.apply(builder, headers, timestamp, ttlMs, priority);
+                    channel.basicPublish(exchange, routingKey, builder.headers(headers).build(), body);
+                    return;
+                }
+                byte[] out = buffer.get();
+                for (int i = 0; i < ID_PLACEHOLDER.length(); i++) {
+                    out[idOffset + i] = (byte) id.charAt(i);
+                }
+                long value = timestamp;
+                for (int i = timestampOffset + 12; i >= timestampOffset; i--) {
+                    out[i] = (byte) ('0' + value % 10);
+                    value /= 10;
+                }
+                AMQP.BasicProperties props = properties;
+                if (ttlMs > 0 || priority > 0) {
+                    Map<String, Object> headers = new HashMap<>();
+                    AMQP.BasicProperties.Builder builder = properties.builder();
+                    Deadlines.apply(builder, headers, timestamp, ttlMs, priority);
+                    props = builder.headers(headers).build();
+                }
+                channel.basicPublish(exchange, routingKey, props, out);
+            }
+
+            private static int indexOf(byte[] data, byte[] pattern) {
+                outer:
+                for (int i = 0; i <= data.length - pattern.length; i++) {
+                    for (int j = 0; j < pattern.length; j++) {
+                        if (data[i + j] != pattern[j]) continue outer;
+                    }
+                    return i;
+                }
+                return -1;
+            }
+        }
+    }
+
+    public static class MensagemImagem {
+        @JsonProperty("id") private String id;
+        @JsonProperty("tipo") private String type;
+        @JsonProperty("nomeArquivo") private String fileName;
+        @JsonProperty("timestamp") private long timestamp;
+        @JsonProperty("dadosImagem") private byte[] imageData;
+
+        public MensagemImagem() {}
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public String getFileName() { return fileName; }
+        public void setFileName(String fileName) { this.fileName = fileName; }
+        public long getTimestamp() { return timestamp; }
+        public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+        public byte[] getImageData() { return imageData; }
+        public void setImageData(byte[] imageData) { this.imageData = imageData; }
+    }
+}